@@ -19,10 +19,42 @@ public class BacktrackingNaiveSolver extends BaseSolver {
      * @throws IOException If an error occurs while reading the file.
      */
     BacktrackingNaiveSolver(String fileName) throws IOException {
-        super(fileName); // Initialize the base solver.
+        this(fileName, false);
+    }
+
+    /**
+     * Constructs a BacktrackingNaiveSolver, possibly without graphical user interface.
+     *
+     * @param fileName The file path of the instance's input data.
+     * @param headless True to run without graphical user interface.
+     * @throws IOException If an error occurs while reading the file.
+     */
+    BacktrackingNaiveSolver(String fileName, boolean headless) throws IOException {
+        this(Puzzle.readText(fileName), headless);
+    }
+
+    /**
+     * Constructs a BacktrackingNaiveSolver for an instance already loaded.
+     *
+     * @param puzzle   The instance to solve.
+     * @param headless True to run without graphical user interface.
+     */
+    BacktrackingNaiveSolver(Puzzle puzzle, boolean headless) {
+        super(puzzle, headless); // Initialize the base solver.
         numberedCells = new Vector<Cell>();
+        listClues();
+    }
+
+    @Override
+    void load(Puzzle puzzle) {
+        super.load(puzzle);
+        cluePosition = 0;
+        listClues();
+    }
 
-        // Populate the vector with non-empty cells.
+    // Populates the vector with non-empty cells.
+    private void listClues() {
+        numberedCells.clear();
         for (int i = 0; i < n; i++)
             for (int j = 0; j < m; j++)
                 if (configuration[i][j].value > 0)
@@ -50,12 +82,17 @@ public class BacktrackingNaiveSolver extends BaseSolver {
      * @return true if a solution path is found; otherwise, false.
      */
     private boolean backtracking(Cell current, int l) {
+        // Stop exploring once the budget is exceeded.
+        if (outOfBudget())
+            return false;
+
         // If the current cell is already colored, it is already in use in a previously explored path.
         // Can only occur when increasing cluePosition
         if (current.state != Cell.State.NotColored) {
             
             // Move to the next clue position as the current one is part of an existing path.
             cluePosition++;
+            recordProgress(cluePosition);
 
             // If all clues are processed, the instance is solved.
             if (cluePosition == numberedCells.size())
@@ -82,6 +119,7 @@ public class BacktrackingNaiveSolver extends BaseSolver {
                 gui.changeRed(current.i, current.j);
                 // Move to the next clue position
                 cluePosition++;
+                recordProgress(cluePosition);
 
                 // If all clues are processed, the instance is solved.
                 if (cluePosition == numberedCells.size())
@@ -113,8 +151,11 @@ public class BacktrackingNaiveSolver extends BaseSolver {
             // If moving in this direction is valid (within bounds and unexplored),
             // move in the direction and continue the path exploration recursively.
             if (isValid(current.i + mvt[k][0], current.j + mvt[k][1], l - 1)) {
-                if (backtracking(configuration[current.i + mvt[k][0]][current.j + mvt[k][1]], l - 1))
-                    return true; // A valid solution is found.
+                if (backtracking(configuration[current.i + mvt[k][0]][current.j + mvt[k][1]], l - 1)) {
+                    // A valid solution is found, link the cell to the following one on its path.
+                    current.next = configuration[current.i + mvt[k][0]][current.j + mvt[k][1]];
+                    return true;
+                }
             }
         }
         // If no solution is found, change the color of the cell and backtrack
@@ -124,22 +165,25 @@ public class BacktrackingNaiveSolver extends BaseSolver {
     }
 
     /**
-     * Initiates the solving process. Overrides the abstract solve method in BaseSolver.
+     * Initiates the solving process. Overrides the abstract search method in BaseSolver.
      */
     @Override
-    void solve() {
+    boolean search() {
         if (numberedCells.size() == 0)
-            return; // No non-empty cells, nothing to solve.
+            return true; // No non-empty cells, nothing to solve.
 
         // Start the backtracking process from the first clue.
         Cell start = numberedCells.get(cluePosition);
-        backtracking(start, start.value - 1);
+        if (!backtracking(start, start.value - 1))
+            return false;
 
         // Turn the temporarily colored cells (red) into colored cells (green) after a solution has been found.
         for (int i = 0; i < n; i++)
             for (int j = 0; j < m; j++)
-                if (configuration[i][j].state == Cell.State.MaybeColored)
+                if (configuration[i][j].state == Cell.State.MaybeColored) {
+                    configuration[i][j].state = Cell.State.Colored;
                     gui.changeGreen(i, j);
-
+                }
+        return true;
     }
 }
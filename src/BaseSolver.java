@@ -1,7 +1,8 @@
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.Scanner;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Serves as an abstract base for different logipix solver algorithms.
@@ -12,8 +13,8 @@ public abstract class BaseSolver {
     // Dimensions of the instance grid.
     int n, m;
 
-    // Graphical user interface to visualize the instance.
-    GUI gui;
+    // Display of the instance, a graphical user interface or a headless display.
+    GridDisplay gui;
 
     // Represents the current state of each cell in the puzzle.
     Cell[][] configuration;
@@ -21,31 +22,59 @@ public abstract class BaseSolver {
     // Possible moves in the grid, representing right, down, left, and up.
     int mvt[][] = { { 0, 1 }, { 1, 0 }, { 0, -1 }, { -1, 0 } };
 
+    // Resources allowed for the search, null if unlimited.
+    SearchBudget budget;
+
+    // Number of backtracking nodes visited, and whether the budget was exceeded.
+    long nodes;
+    boolean aborted;
+
+    // Best partial assignment found, with the number of clues it resolves.
+    private int bestResolved;
+    private Cell.State[][] bestAssignment;
+
     /**
-     * Constructs a BaseSolver and initializes the instance configuration.
+     * Constructs a BaseSolver with a graphical user interface and initializes the instance configuration.
      *
      * @param fileName The file path of the instance's input data.
      * @throws IOException If an error occurs while reading the file.
      */
     BaseSolver(String fileName) throws IOException {
-        // Load the puzzle file content into a string.
-        String content = new String(Files.readAllBytes(Paths.get(fileName)));
-        Scanner scanner = new Scanner(content);
+        this(fileName, false);
+    }
+
+    /**
+     * Constructs a BaseSolver and initializes the instance configuration.
+     *
+     * @param fileName The file path of the instance's input data.
+     * @param headless True to run without graphical user interface.
+     * @throws IOException If an error occurs while reading the file.
+     */
+    BaseSolver(String fileName, boolean headless) throws IOException {
+        this(Puzzle.readText(fileName), headless);
+    }
 
+    /**
+     * Constructs a BaseSolver for an instance already loaded (from a text file or a container).
+     *
+     * @param puzzle   The instance to solve.
+     * @param headless True to run without graphical user interface.
+     */
+    BaseSolver(Puzzle puzzle, boolean headless) {
         // Initialize the dimensions of the grid.
-        m = scanner.nextInt();
-        n = scanner.nextInt();
+        m = puzzle.m;
+        n = puzzle.n;
 
         // Set up the initial configuration of the grid.
         configuration = new Cell[n][m];
 
         // Initialize the graphical user interface.
-        gui = new GUI(m, n, () -> solve());
+        gui = headless ? new HeadlessDisplay() : new GUI(m, n, () -> solve());
 
-        // Populate the grid with cells, based on the input file.
+        // Populate the grid with cells, based on the instance.
         for (int i = 0; i < n; i++) {
             for (int j = 0; j < m; j++) {
-                int value = scanner.nextInt();
+                int value = puzzle.value(i, j);
                 configuration[i][j] = new Cell(i, j, value);
 
                 // Update the GUI to print the number if the cell has a value greater than 0
@@ -54,13 +83,209 @@ public abstract class BaseSolver {
                 }
             }
         }
+    }
+
+    /**
+     * Constructs a headless BaseSolver without cells, for the solvers keeping the grid in their own
+     * layout; such a solver overrides solution, snapshot and numberOfClues.
+     *
+     * @param n The number of rows.
+     * @param m The number of columns.
+     */
+    BaseSolver(int n, int m) {
+        this.n = n;
+        this.m = m;
+        gui = new HeadlessDisplay();
+    }
+
+    /**
+     * Loads another instance into a headless solver, reusing its cells: the grid only grows when the
+     * instance has more rows or columns than the previous ones. The budget and the options are kept.
+     * Subclasses reload their own structures the same way, so that a solver can serve many instances
+     * without allocating, with its code staying compiled.
+     *
+     * @param puzzle The instance to solve next.
+     */
+    void load(Puzzle puzzle) {
+        if (!(gui instanceof HeadlessDisplay))
+            throw new IllegalStateException("Only a headless solver can load another instance");
+        n = puzzle.n;
+        m = puzzle.m;
+        int rows = configuration.length, columns = rows == 0 ? 0 : configuration[0].length;
+        if (n > rows || m > columns) {
+            Cell[][] grown = new Cell[Math.max(n, rows)][Math.max(m, columns)];
+            for (int i = 0; i < rows; i++)
+                System.arraycopy(configuration[i], 0, grown[i], 0, columns);
+            configuration = grown;
+        }
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < m; j++) {
+                int value = puzzle.value(i, j);
+                if (configuration[i][j] == null)
+                    configuration[i][j] = new Cell(i, j, value);
+                else
+                    configuration[i][j].reset(value);
+            }
+    }
+
+    /**
+     * Records every change of the cells during the next solve into a log,
+     * that SearchPlayer can replay later. The clues are recorded first.
+     *
+     * @param fileName The file path of the log.
+     * @throws IOException If the file cannot be created.
+     */
+    void record(String fileName) throws IOException {
+        SearchRecorder recorder = new SearchRecorder(fileName, n, m, gui);
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < m; j++)
+                if (configuration[i][j].value > 0)
+                    recorder.setValue(i, j, configuration[i][j].value);
+        gui = recorder;
+    }
+
+    /**
+     * Sets the resources allowed for the next solves.
+     *
+     * @param budget The budget, or null for an unlimited search.
+     */
+    void setBudget(SearchBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Solves the instance within the budget.
+     *
+     * @return The outcome of the solve, with the best partial assignment if not solved.
+     */
+    SolveResult solve() {
+        long start = System.nanoTime();
+        nodes = 0;
+        aborted = false;
+        bestResolved = 0;
+        bestAssignment = null;
+        if (budget != null)
+            budget = budget.start();
+
+        boolean solved;
+        try {
+            solved = search();
+        } catch (RuntimeException | Error e) {
+            // The recording ends even when the search throws, whose exception is the one reported.
+            try {
+                endRecording();
+            } catch (UncheckedIOException closing) {
+                e.addSuppressed(closing);
+            }
+            throw e;
+        }
+        endRecording();
+
+        long elapsed = System.nanoTime() - start;
+        if (solved)
+            return new SolveResult(SolveResult.Status.Solved, nodes, elapsed, numberOfClues(), snapshot(),
+                    solution());
+        return new SolveResult(aborted ? SolveResult.Status.TimedOut : SolveResult.Status.Unsat, nodes, elapsed,
+                bestResolved, bestAssignment, null);
+    }
+
+    // Ends the recording of the solve, if any, and gives the display back to the solver.
+    private void endRecording() {
+        if (gui instanceof SearchRecorder) {
+            SearchRecorder recorder = (SearchRecorder) gui;
+            gui = recorder.delegate;
+            try {
+                recorder.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Builds the solution found by the search, by following the path of each clue
+     * from the clue it was started from.
+     *
+     * @return The solution, in canonical order.
+     */
+    Solution solution() {
+        List<int[]> paths = new ArrayList<int[]>();
+        int[] path = new int[n * m];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < m; j++) {
+                Cell start = configuration[i][j];
+                if (start.value == 1 || (start.value > 1 && start.next != null)) {
+                    int length = 0;
+                    for (Cell c = start; c != null && length < path.length; c = c.next)
+                        path[length++] = c.i * m + c.j;
+                    paths.add(Arrays.copyOf(path, length));
+                }
+            }
+        return new Solution(n, m, paths.toArray(new int[paths.size()][]));
+    }
+
+    /**
+     * Counts a backtracking node and checks the budget every SearchBudget.CHECK_PERIOD nodes.
+     * Once the budget is exceeded, every following call returns true so that the search unwinds.
+     *
+     * @return true if the search must stop; otherwise, false.
+     */
+    final boolean outOfBudget() {
+        if (aborted)
+            return true;
+        if ((++nodes & (SearchBudget.CHECK_PERIOD - 1)) == 0 && budget != null && budget.exceeded(nodes))
+            aborted = true;
+        return aborted;
+    }
+
+    /**
+     * Checks the budget outside the backtracking, without counting a node, for the work done
+     * between two nodes (the deduction rules). Sets aborted once the budget is exceeded.
+     *
+     * @return true if the search must stop; otherwise, false.
+     */
+    final boolean budgetExceeded() {
+        if (!aborted && budget != null && budget.exceeded(nodes))
+            aborted = true;
+        return aborted;
+    }
+
+    /**
+     * Keeps the current assignment if it resolves more clues than the best one.
+     * Only done when a budget is set, since a partial assignment is useless otherwise.
+     *
+     * @param resolvedClues The number of clues whose paths are placed.
+     */
+    final void recordProgress(int resolvedClues) {
+        if (budget != null && resolvedClues > bestResolved) {
+            bestResolved = resolvedClues;
+            bestAssignment = snapshot();
+        }
+    }
 
-        scanner.close();
+    // Current state of the cells, as kept for the best partial assignment.
+    Cell.State[][] snapshot() {
+        Cell.State[][] states = new Cell.State[n][m];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < m; j++)
+                states[i][j] = configuration[i][j].state;
+        return states;
+    }
+
+    int numberOfClues() {
+        int count = 0;
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < m; j++)
+                if (configuration[i][j].value > 0)
+                    count++;
+        return count;
     }
 
     /**
      * Abstract method defining the solving mechanism.
      * This method must be implemented by subclasses with specific solving strategies.
+     *
+     * @return true if a solution is found; otherwise, false.
      */
-    abstract void solve();
+    abstract boolean search();
 }
\ No newline at end of file
@@ -5,9 +5,13 @@ public class Cell {
     // Attributes used only by (improved) combination exclusion solver.
     public int position = -1, b1 = -1; 
 
+    // The following cell on the path of the cell in the solution, null for the last one.
+    public Cell next;
+
     // 'i' and 'j' represent the cell's coordinates within the grid. 
-    //'value' is the number assigned to the cell.
-    public final int i, j, value;
+    //'value' is the number assigned to the cell, changed only when the solver loads another instance.
+    public final int i, j;
+    public int value;
 
     // The 'state' represents the current status of the cell in the solving process.
     public State state;
@@ -17,9 +21,10 @@ public class Cell {
      * COLORED: The cell is part of the solution.
      * MAYBE_COLORED: The cell is considered in the current tested configuration.
      * NOT_COLORED: The cell is not part of solution/tested configuration.
+     * EXCLUDED: The cell is known to be on no path, from a deduction rule.
      */
     public enum State {
-        Colored, MaybeColored, NotColored;
+        Colored, MaybeColored, NotColored, Excluded;
     }
 
     /**
@@ -36,4 +41,17 @@ public class Cell {
         state = State.NotColored;
     }
 
+    /**
+     * Resets the cell for another instance, as if it was just constructed.
+     *
+     * @param value The number assigned to the cell.
+     */
+    void reset(int value) {
+        this.value = value;
+        position = -1;
+        b1 = -1;
+        next = null;
+        state = State.NotColored;
+    }
+
 }
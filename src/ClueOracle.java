@@ -0,0 +1,38 @@
+/**
+ * Answers whether there is a clue of a given number (below 64) within a rectangle of the grid,
+ * while clues are inserted and removed (see TwoDSegmentTree, FlatSegmentTree and RegionOracle).
+ */
+public interface ClueOracle {
+
+    /**
+     * Inserts the clue of a cell if absent, or removes it if present.
+     *
+     * @param x     Row index of the cell.
+     * @param y     Column index of the cell.
+     * @param value The clue of the cell minus 1.
+     */
+    void change(int x, int y, int value);
+
+    /**
+     * Checks for the presence of a clue within a rectangle.
+     *
+     * @param x1    Row index of the top-left corner.
+     * @param y1    Column index of the top-left corner.
+     * @param x2    Row index of the bottom-right corner.
+     * @param y2    Column index of the bottom-right corner.
+     * @param value The clue minus 1.
+     * @return True if the clue is found within the rectangle, False otherwise.
+     */
+    boolean query(int x1, int y1, int x2, int y2, int value);
+
+    /**
+     * Empties the oracle for a grid of other dimensions, keeping its memory when large enough.
+     *
+     * @param n The number of rows in the grid.
+     * @param m The number of columns in the grid.
+     * @return False if the oracle cannot be reused, and must be built again.
+     */
+    default boolean reset(int n, int m) {
+        return false;
+    }
+}
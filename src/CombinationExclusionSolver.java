@@ -1,4 +1,5 @@
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Vector;
 
 /**
@@ -12,32 +13,73 @@ public class CombinationExclusionSolver extends BaseSolver {
     private Boolean[][] combination;
     private Boolean[] validClue;
     private Vector<Cell> numberedCells;
+    private Trail trail;
+
+    // Set when the propagation finds a clue without any path.
+    private boolean infeasible = false;
+
+    // Clues flagged valid by the propagation, and clues joined by the paths placed by the backtracking.
+    private int resolved = 0;
 
     CombinationExclusionSolver(String fileName) throws IOException {
-        super(fileName);
+        this(fileName, false);
+    }
 
+    CombinationExclusionSolver(String fileName, boolean headless) throws IOException {
+        this(Puzzle.readText(fileName), headless);
+    }
+
+    CombinationExclusionSolver(Puzzle puzzle, boolean headless) {
+        super(puzzle, headless);
         numberedCells = new Vector<Cell>();
+        indexClues();
+    }
 
+    @Override
+    void load(Puzzle puzzle) {
+        super.load(puzzle);
+        indexClues();
+    }
+
+    // Lists the clues and sets up their chains, in the arrays of the previous instance when large enough.
+    private void indexClues() {
+        numberedCells.clear();
         for (int i = 0; i < n; i++)
             for (int j = 0; j < m; j++)
                 if (configuration[i][j].value > 0)
                     numberedCells.add(configuration[i][j]);
 
-        chains = new Cell[numberedCells.size()][];
-        combination = new Boolean[numberedCells.size()][];
-        validClue = new Boolean[numberedCells.size()];
-
-        for (int k = 0; k < numberedCells.size(); k++) {
+        int clues = numberedCells.size();
+        if (validClue == null || validClue.length < clues) {
+            chains = chains == null ? new Cell[clues][] : Arrays.copyOf(chains, clues);
+            combination = combination == null ? new Boolean[clues][] : Arrays.copyOf(combination, clues);
+            validClue = new Boolean[clues];
+        }
+        for (int k = 0; k < clues; k++) {
             validClue[k] = false;
             Cell currCell = numberedCells.get(k);
-            chains[k] = new Cell[currCell.value];
-            combination[k] = new Boolean[currCell.value];
+            if (chains[k] == null || chains[k].length < currCell.value) {
+                chains[k] = new Cell[currCell.value];
+                combination[k] = new Boolean[currCell.value];
+            } else {
+                Arrays.fill(chains[k], null);
+                Arrays.fill(combination[k], null);
+            }
             chains[k][0] = currCell;
             currCell.position = k;
         }
+        if (trail == null)
+            trail = new Trail(this, validClue, null);
+        else
+            trail.reset(validClue, null);
+        cluePosition = 0;
+        nbChanged = 0;
+        infeasible = false;
     }
 
     private Boolean generateFirst(Cell currCell, int idx) {
+        if (outOfBudget())
+            return false;
         Cell origineCell = chains[cluePosition][0];
 
         if (idx == origineCell.value - 1) {
@@ -45,13 +87,11 @@ public class CombinationExclusionSolver extends BaseSolver {
                 return true;
 
             if (currCell.value == origineCell.value) {
-                currCell.state = Cell.State.MaybeColored;
-                gui.changeRed(currCell.i, currCell.j);
-
+                int mark = trail.mark();
+                trail.setState(currCell, Cell.State.MaybeColored);
                 chains[cluePosition][idx] = currCell;
                 combination[cluePosition][idx] = true;
-                currCell.state = Cell.State.NotColored;
-                gui.changeGrey(currCell.i, currCell.j);
+                trail.undo(mark);
                 return true;
             } else
                 return false;
@@ -62,42 +102,44 @@ public class CombinationExclusionSolver extends BaseSolver {
 
             if (Math.abs(chains[cluePosition][idx + 1].i - currCell.i)
                     + Math.abs(chains[cluePosition][idx + 1].j - currCell.j) == 1) {
-                chains[cluePosition][idx] = currCell;
-                combination[cluePosition][idx] = true;
-                return generateFirst(chains[cluePosition][idx + 1], idx + 1);
+                // The cell is used by the path while it is extended, as in the general case.
+                int mark = trail.mark();
+                if (currCell.state != Cell.State.Colored)
+                    trail.setState(currCell, Cell.State.MaybeColored);
+                Boolean found = generateFirst(chains[cluePosition][idx + 1], idx + 1);
+                trail.undo(mark);
+                if (found) {
+                    chains[cluePosition][idx] = currCell;
+                    combination[cluePosition][idx] = true;
+                }
+                return found;
             } else
                 return false;
         }
 
-        if (currCell.state != Cell.State.Colored) {
-            currCell.state = Cell.State.MaybeColored;
-            gui.changeRed(currCell.i, currCell.j);
-        }
+        int mark = trail.mark();
+        if (currCell.state != Cell.State.Colored)
+            trail.setState(currCell, Cell.State.MaybeColored);
 
         for (int k = 0; k < 4; k++) {
             int ni = currCell.i + mvt[k][0], nj = currCell.j + mvt[k][1];
             if (ni > -1 && ni < n && nj > -1 && nj < m && configuration[ni][nj].state == Cell.State.NotColored
                     && (idx + 1 == origineCell.value - 1 || configuration[ni][nj].value == 0)) {
                 if (generateFirst(configuration[ni][nj], idx + 1)) {
-
-                    if (currCell.state != Cell.State.Colored) {
-                        currCell.state = Cell.State.NotColored;
-                        gui.changeGrey(currCell.i, currCell.j);
-                    }
+                    trail.undo(mark);
                     chains[cluePosition][idx] = currCell;
                     combination[cluePosition][idx] = true;
                     return true;
                 }
             }
         }
-        if (currCell.state != Cell.State.Colored) {
-            currCell.state = Cell.State.NotColored;
-            gui.changeGrey(currCell.i, currCell.j);
-        }
+        trail.undo(mark);
         return false;
     }
 
     private Boolean generateAll(Cell currCell, int idx) {
+        if (outOfBudget())
+            return false;
         Cell origineCell = chains[cluePosition][0];
 
         if (idx == origineCell.value - 1) {
@@ -105,14 +147,12 @@ public class CombinationExclusionSolver extends BaseSolver {
                 return true;
 
             if (currCell.value == origineCell.value) {
-                currCell.state = Cell.State.MaybeColored;
-                gui.changeRed(currCell.i, currCell.j);
-
+                int mark = trail.mark();
+                trail.setState(currCell, Cell.State.MaybeColored);
                 if (chains[cluePosition][idx] != currCell) {
                     combination[cluePosition][idx] = false;
                 }
-                currCell.state = Cell.State.NotColored;
-                gui.changeGrey(currCell.i, currCell.j);
+                trail.undo(mark);
                 return true;
             } else
                 return false;
@@ -122,21 +162,22 @@ public class CombinationExclusionSolver extends BaseSolver {
 
             if (Math.abs(chains[cluePosition][idx + 1].i - currCell.i)
                     + Math.abs(chains[cluePosition][idx + 1].j - currCell.j) == 1) {
-                if (generateAll(chains[cluePosition][idx + 1], idx + 1)) {
-                    if (chains[cluePosition][idx] != currCell)
-                        combination[cluePosition][idx] = false;
-                    return true;
-                } else
-                    return false;
+                int mark = trail.mark();
+                if (currCell.state != Cell.State.Colored)
+                    trail.setState(currCell, Cell.State.MaybeColored);
+                Boolean found = generateAll(chains[cluePosition][idx + 1], idx + 1);
+                trail.undo(mark);
+                if (found && chains[cluePosition][idx] != currCell)
+                    combination[cluePosition][idx] = false;
+                return found;
             } else
                 return false;
         }
         
         Boolean flag = false;
-        if (currCell.state != Cell.State.Colored) {
-            currCell.state = Cell.State.MaybeColored;
-            gui.changeRed(currCell.i, currCell.j);
-        }
+        int mark = trail.mark();
+        if (currCell.state != Cell.State.Colored)
+            trail.setState(currCell, Cell.State.MaybeColored);
 
         for (int k = 0; k < 4; k++) {
             int ni = currCell.i + mvt[k][0], nj = currCell.j + mvt[k][1];
@@ -151,10 +192,7 @@ public class CombinationExclusionSolver extends BaseSolver {
             }
         }
 
-        if (currCell.state != Cell.State.Colored) {
-            currCell.state = Cell.State.NotColored;
-            gui.changeGrey(currCell.i, currCell.j);
-        }
+        trail.undo(mark);
         return flag;
     }
 
@@ -166,8 +204,17 @@ public class CombinationExclusionSolver extends BaseSolver {
             gui.changeGreen(chains[cluePosition][0].i, chains[cluePosition][0].j);
             return;
         }
-        generateFirst(chains[cluePosition][0], 0);
-        generateAll(chains[cluePosition][0], 0);
+        Boolean found = generateFirst(chains[cluePosition][0], 0);
+        if (found)
+            generateAll(chains[cluePosition][0], 0);
+        // An interrupted enumeration leaves combination incomplete.
+        if (aborted)
+            return;
+        // A clue without any path left makes the instance unsatisfiable.
+        if (!found) {
+            infeasible = true;
+            return;
+        }
 
         int l = chains[cluePosition][0].value;
 
@@ -183,13 +230,20 @@ public class CombinationExclusionSolver extends BaseSolver {
                     flag = false;
             }
             validClue[chains[cluePosition][l - 1].position] = true;
-            if (flag)
+            if (flag) {
                 validClue[cluePosition] = true;
+                for (int k = 0; k < l - 1; k++)
+                    chains[cluePosition][k].next = chains[cluePosition][k + 1];
+            }
         }
     }
 
     
     private Boolean backtracking(Cell currCell, int idx) {
+        if (outOfBudget())
+            return false;
+        if (idx == 0)
+            recordProgress(resolved);
         if (validClue[cluePosition]) {
             if (++cluePosition == numberedCells.size() || backtracking(chains[cluePosition][0], 0)) {
                 return true;
@@ -201,10 +255,13 @@ public class CombinationExclusionSolver extends BaseSolver {
 
         if (idx == origineCell.value - 1) {
             if (currCell.value == origineCell.value) {
+                int mark = trail.mark();
+                // The path resolves its clue, and its end unless the propagation flagged it already.
+                int joined = currCell.state != Cell.State.Colored ? 2 : 1;
+                resolved += joined;
                 if (currCell.state != Cell.State.Colored) {
-                    currCell.state = Cell.State.MaybeColored;
-                    gui.changeRed(currCell.i, currCell.j);
-                    validClue[currCell.position] = true;
+                    trail.setState(currCell, Cell.State.MaybeColored);
+                    trail.setValid(currCell.position, true);
                 }
                 if (++cluePosition == numberedCells.size() || backtracking(chains[cluePosition][0], 0)) {
                     if (currCell.state != Cell.State.Colored) {
@@ -213,11 +270,8 @@ public class CombinationExclusionSolver extends BaseSolver {
                     }
                     return true;
                 } else {
-                    if (currCell.state != Cell.State.Colored) {
-                        currCell.state = Cell.State.NotColored;
-                        gui.changeGrey(currCell.i, currCell.j);
-                        validClue[currCell.position] = false;
-                    }
+                    trail.undo(mark);
+                    resolved -= joined;
                     cluePosition--;
                     return false;
                 }
@@ -229,30 +283,27 @@ public class CombinationExclusionSolver extends BaseSolver {
                 && chains[cluePosition][idx + 1].b1 == origineCell.position) {
             if (Math.abs(chains[cluePosition][idx + 1].i - currCell.i)
                     + Math.abs(chains[cluePosition][idx + 1].j - currCell.j) == 1) {
-                if (currCell.state != Cell.State.Colored) {
-                    currCell.state = Cell.State.MaybeColored;
-                    gui.changeRed(currCell.i, currCell.j);
-                }
-                if (backtracking(chains[cluePosition][idx + 1], idx + 1)) {
+                int mark = trail.mark();
+                if (currCell.state != Cell.State.Colored)
+                    trail.setState(currCell, Cell.State.MaybeColored);
+                Cell nextCell = chains[cluePosition][idx + 1];
+                if (backtracking(nextCell, idx + 1)) {
                     if (currCell.state != Cell.State.Colored) {
                         currCell.state = Cell.State.Colored;
                         gui.changeGreen(currCell.i, currCell.j);
                     }
+                    currCell.next = nextCell;
                     return true;
                 }
-                if (currCell.state != Cell.State.Colored) {
-                    currCell.state = Cell.State.NotColored;
-                    gui.changeGrey(currCell.i, currCell.j);
-                }
+                trail.undo(mark);
                 return false;
             } else
                 return false;
         }
 
-        if (currCell.state != Cell.State.Colored) {
-            currCell.state = Cell.State.MaybeColored;
-            gui.changeRed(currCell.i, currCell.j);
-        }
+        int mark = trail.mark();
+        if (currCell.state != Cell.State.Colored)
+            trail.setState(currCell, Cell.State.MaybeColored);
 
         for (int k = 0; k < 4; k++) {
             int ni = currCell.i + mvt[k][0], nj = currCell.j + mvt[k][1];
@@ -264,34 +315,43 @@ public class CombinationExclusionSolver extends BaseSolver {
                         currCell.state = Cell.State.Colored;
                         gui.changeGreen(currCell.i, currCell.j);
                     }
+                    currCell.next = configuration[ni][nj];
                     return true;
                 }
             }
         }
 
-        if (currCell.state != Cell.State.Colored) {
-            currCell.state = Cell.State.NotColored;
-            gui.changeGrey(currCell.i, currCell.j);
-        }
+        trail.undo(mark);
         return false;
     }
 
     @Override
-    void solve() {
+    boolean search() {
         if (numberedCells.size() == 0)
-            return;
+            return true;
         int nbChangedOld;
         do {
             nbChangedOld = nbChanged;
             for (Cell curCell : numberedCells) {
+                if (aborted || infeasible)
+                    break;
                 if (!validClue[curCell.position]) {
                     cluePosition = curCell.position;
                     combineExclude();
                 }
             }
-        } while (nbChangedOld != nbChanged);
+        } while (nbChangedOld != nbChanged && !aborted && !infeasible);
+        // The budget may run out during the propagation, which already resolves most clues.
+        resolved = 0;
+        for (int k = 0; k < numberedCells.size(); k++)
+            if (validClue[k])
+                resolved++;
+        if (!infeasible)
+            recordProgress(resolved);
+        if (aborted || infeasible)
+            return false;
         cluePosition = 0;
-        backtracking(chains[cluePosition][0], 0);
+        return backtracking(chains[cluePosition][0], 0);
     }
 
 }
@@ -0,0 +1,512 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Implements the improved combination exclusion solver in a memory-lean layout, for very large grids.
+ * The deductions and the search order are those of ImprovedCombinationExclusionSolver, but no object
+ * is kept per cell:
+ * - the state of each cell is packed on 2 bits, and its clue on a byte,
+ * - the chains of all the clues share one int pool, their combination flags one bitset,
+ * - the oracle is a RegionOracle instead of a segment tree,
+ * - the backtracking keeps its own stack in arrays, so that long searches do not overflow the thread stack,
+ * - the free neighbours of a cell are found by a NeighbourEngine, scalar or vectorized.
+ *
+ * The grid itself costs about 1.5 bytes per cell, and each clue 4 bytes per cell of its chain plus 8 bytes:
+ * a grid fully covered by paths of average length L takes about 9.5 + 16 / L bytes per cell (14 bytes measured
+ * with lengths drawn up to 8, against 137 for ImprovedCombinationExclusionSolver), to which the trail and the stack
+ * of the backtracking add 15 to 23 bytes per cell of the current search path.
+ * The solver runs headless, without checkpoints nor recording.
+ */
+public class CompactSolver extends BaseSolver {
+    // States of a cell on 2 bits: free (0, as NeighbourEngine expects), on the path being built, or colored.
+    private static final int FREE = 0, PATH = 1, COLORED = 2;
+
+    // Kinds of the entries of the trail, as in Trail.
+    private static final int CELL = 0, CLUE = 1, ORACLE = 2;
+
+    // Kinds of the frames of the backtracking: a clue already resolved, the end of a path,
+    // a move to a cell forced by the propagation, or a branching over the four moves.
+    private static final byte SKIP = 0, END = 1, FORCED = 2, LOOP = 3;
+
+    // State of each cell in row-major order, 32 cells per long.
+    private final long[] states;
+
+    // Clue of each cell in row-major order, 0 if empty.
+    private final byte[] values;
+
+    // Cell of each clue in row-major order, and start of its chain in the pool (one more for the end of the pool).
+    private final int[] clueCells, chainStart;
+
+    // Chains of the clues: cell at each index of the path being enumerated.
+    private final int[] chainPool;
+
+    // One bit per entry of the pool: the cell is on every path found so far, and the clue colored it.
+    private final long[] combination, owned;
+
+    // One bit per clue: its path is resolved, and its chain holds the path of the solution.
+    private final long[] valid, pathHolder;
+
+    private final RegionOracle oracle;
+
+    // Finds the free neighbours of a cell, see NeighbourEngine.
+    private final NeighbourEngine neighbours = NeighbourEngine.create();
+    private int cluePosition;
+    private long nbChanged = 0;
+
+    // Set when the propagation finds a clue without any path.
+    private boolean infeasible = false;
+
+    // Clues flagged valid by the propagation, and clues joined by the paths placed by the backtracking.
+    private int resolved = 0;
+
+    // Undo trail: (code, old value) pairs, the code being (index << 2) | kind.
+    private int[] trail = new int[256];
+    private int trailSize = 0;
+
+    // Stack of the backtracking: cell, index in the path, clue, trail mark, kind and next move of each frame.
+    private int[] frameCell = new int[256], frameClue = new int[256], frameMark = new int[256];
+    private byte[] frameIdx = new byte[256], frameKind = new byte[256], frameMove = new byte[256];
+    private int top = 0;
+
+    CompactSolver(String fileName) throws IOException {
+        this(Puzzle.readText(fileName));
+    }
+
+    CompactSolver(Puzzle puzzle) {
+        super(puzzle.n, puzzle.m);
+        values = new byte[n * m];
+        int clues = 0;
+        long poolSize = 0;
+        for (int c = 0; c < n * m; c++) {
+            int v = puzzle.values[c];
+            if (v < 0 || v > 63)
+                throw new IllegalArgumentException("Clue out of range: " + v);
+            values[c] = (byte) v;
+            if (v > 0) {
+                clues++;
+                poolSize += v;
+            }
+        }
+        if (poolSize > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many clues: " + clues);
+
+        states = new long[(n * m + 31) >> 5];
+        oracle = new RegionOracle(n, m, values);
+        clueCells = new int[clues];
+        chainStart = new int[clues + 1];
+        chainPool = new int[(int) poolSize];
+        for (int c = 0, k = 0; c < n * m; c++)
+            if (values[c] > 0) {
+                clueCells[k] = c;
+                chainPool[chainStart[k]] = c;
+                chainStart[k + 1] = chainStart[k] + values[c];
+                oracle.change(c / m, c % m, values[c] - 1);
+                k++;
+            }
+        combination = new long[(chainPool.length + 63) >> 6];
+        owned = new long[(chainPool.length + 63) >> 6];
+        valid = new long[(clues + 63) >> 6];
+        pathHolder = new long[(clues + 63) >> 6];
+    }
+
+    private int state(int c) {
+        return (int) (states[c >> 5] >>> ((c & 31) << 1)) & 3;
+    }
+
+    private void putState(int c, int state) {
+        int shift = (c & 31) << 1;
+        states[c >> 5] = (states[c >> 5] & ~(3L << shift)) | ((long) state << shift);
+    }
+
+    private static boolean bit(long[] bits, int k) {
+        return (bits[k >> 6] & 1L << k) != 0;
+    }
+
+    private static void putBit(long[] bits, int k, boolean b) {
+        if (b)
+            bits[k >> 6] |= 1L << k;
+        else
+            bits[k >> 6] &= ~(1L << k);
+    }
+
+    // Index of the clue of a cell, found among the clues sorted by cell.
+    private int clueOf(int c) {
+        return Arrays.binarySearch(clueCells, c);
+    }
+
+    private boolean adjacent(int a, int b) {
+        return Math.abs(a / m - b / m) + Math.abs(a % m - b % m) == 1;
+    }
+
+    // Checks that a partner of the current clue is still within reach from a free neighbour at index idx + 1.
+    private boolean reachable(int next, int idx, int v) {
+        int ni = next / m, nj = next % m;
+        return oracle.query(Math.max(0, ni - v + idx + 1), Math.max(0, nj - v + idx + 1),
+                Math.min(n - 1, ni + v - idx - 1), Math.min(m - 1, nj + v - idx - 1), v - 1);
+    }
+
+    // Neighbour of a cell in a direction, -1 outside the grid.
+    private int neighbour(int c, int k) {
+        int ni = c / m + mvt[k][0], nj = c % m + mvt[k][1];
+        return ni > -1 && ni < n && nj > -1 && nj < m ? ni * m + nj : -1;
+    }
+
+    private void log(int index, int kind, int old) {
+        if (trailSize + 2 > trail.length)
+            trail = Arrays.copyOf(trail, 2 * trail.length);
+        trail[trailSize++] = (index << 2) | kind;
+        trail[trailSize++] = old;
+    }
+
+    private void setState(int c, int state) {
+        log(c, CELL, state(c));
+        putState(c, state);
+    }
+
+    private void setValid(int k, boolean b) {
+        log(k, CLUE, bit(valid, k) ? 1 : 0);
+        putBit(valid, k, b);
+    }
+
+    private void toggleOracle(int c) {
+        log(c, ORACLE, 0);
+        oracle.change(c / m, c % m, values[c] - 1);
+    }
+
+    private void undo(int mark) {
+        while (trailSize > mark) {
+            int old = trail[--trailSize], code = trail[--trailSize], index = code >>> 2;
+            switch (code & 3) {
+            case CELL:
+                putState(index, old);
+                break;
+            case CLUE:
+                putBit(valid, index, old != 0);
+                break;
+            default:
+                oracle.change(index / m, index % m, values[index] - 1);
+            }
+        }
+    }
+
+    private boolean generateFirst(int c, int idx) {
+        if (outOfBudget())
+            return false;
+        int k = cluePosition, v = values[clueCells[k]], p = chainStart[k] + idx;
+
+        if (idx == v - 1) {
+            if (state(c) == COLORED)
+                return true;
+            if (values[c] == v) {
+                chainPool[p] = c;
+                putBit(combination, p, true);
+                return true;
+            }
+            return false;
+        }
+        if (bit(owned, p + 1)) {
+            if (!adjacent(c, chainPool[p + 1]))
+                return false;
+            // The cell is used by the path while it is extended, as in the general case.
+            int mark = trailSize;
+            if (state(c) != COLORED)
+                setState(c, PATH);
+            boolean found = generateFirst(chainPool[p + 1], idx + 1);
+            undo(mark);
+            if (found) {
+                chainPool[p] = c;
+                putBit(combination, p, true);
+            }
+            return found;
+        }
+        int mark = trailSize;
+        if (state(c) != COLORED)
+            setState(c, PATH);
+
+        int moves = neighbours.freeMoves(states, values, n, m, c, idx + 1 == v - 1);
+        for (int d = 0; d < 4; d++) {
+            int next = neighbour(c, d);
+            if ((moves >> d & 1) != 0 && reachable(next, idx, v) && generateFirst(next, idx + 1)) {
+                undo(mark);
+                chainPool[p] = c;
+                putBit(combination, p, true);
+                return true;
+            }
+        }
+        undo(mark);
+        return false;
+    }
+
+    private boolean generateAll(int c, int idx) {
+        if (outOfBudget())
+            return false;
+        int k = cluePosition, v = values[clueCells[k]], p = chainStart[k] + idx;
+
+        if (idx == v - 1) {
+            if (state(c) == COLORED)
+                return true;
+            if (values[c] == v) {
+                if (chainPool[p] != c)
+                    putBit(combination, p, false);
+                return true;
+            }
+            return false;
+        }
+        if (bit(owned, p + 1)) {
+            if (!adjacent(c, chainPool[p + 1]))
+                return false;
+            int mark = trailSize;
+            if (state(c) != COLORED)
+                setState(c, PATH);
+            boolean found = generateAll(chainPool[p + 1], idx + 1);
+            undo(mark);
+            if (found && chainPool[p] != c)
+                putBit(combination, p, false);
+            return found;
+        }
+        boolean flag = false;
+        int mark = trailSize;
+        if (state(c) != COLORED)
+            setState(c, PATH);
+
+        int moves = neighbours.freeMoves(states, values, n, m, c, idx + 1 == v - 1);
+        for (int d = 0; d < 4; d++) {
+            int next = neighbour(c, d);
+            if ((moves >> d & 1) != 0 && reachable(next, idx, v) && generateAll(next, idx + 1)) {
+                if (chainPool[p] != c)
+                    putBit(combination, p, false);
+                flag = true;
+            }
+        }
+        undo(mark);
+        return flag;
+    }
+
+    private void combineExclude() {
+        int k = cluePosition, origin = clueCells[k], v = values[origin], start = chainStart[k];
+        if (v == 1) {
+            putState(origin, COLORED);
+            putBit(valid, k, true);
+            putBit(pathHolder, k, true);
+            nbChanged++;
+            return;
+        }
+        oracle.change(origin / m, origin % m, v - 1);
+        boolean found = generateFirst(origin, 0);
+        if (found)
+            generateAll(origin, 0);
+        oracle.change(origin / m, origin % m, v - 1);
+        // An interrupted enumeration leaves combination incomplete.
+        if (aborted)
+            return;
+        // A clue without any path left makes the instance unsatisfiable.
+        if (!found) {
+            infeasible = true;
+            return;
+        }
+
+        if (bit(combination, start + v - 1)) {
+            boolean flag = true;
+            for (int p = start; p < start + v; p++) {
+                if (bit(combination, p) && state(chainPool[p]) != COLORED) {
+                    putState(chainPool[p], COLORED);
+                    putBit(owned, p, true);
+                    nbChanged++;
+                } else if (!bit(combination, p))
+                    flag = false;
+            }
+            putBit(valid, clueOf(chainPool[start + v - 1]), true);
+            oracle.change(origin / m, origin % m, v - 1);
+
+            if (flag) {
+                putBit(valid, k, true);
+                putBit(pathHolder, k, true);
+                int end = chainPool[start + v - 1];
+                oracle.change(end / m, end % m, v - 1);
+            }
+        }
+    }
+
+    // Pushes a frame entering a cell at an index of the path of the current clue.
+    private void push(int c, int idx) {
+        if (top == frameCell.length) {
+            frameCell = Arrays.copyOf(frameCell, 2 * top);
+            frameClue = Arrays.copyOf(frameClue, 2 * top);
+            frameMark = Arrays.copyOf(frameMark, 2 * top);
+            frameIdx = Arrays.copyOf(frameIdx, 2 * top);
+            frameKind = Arrays.copyOf(frameKind, 2 * top);
+            frameMove = Arrays.copyOf(frameMove, 2 * top);
+        }
+        frameCell[top] = c;
+        frameIdx[top] = (byte) idx;
+        top++;
+    }
+
+    /**
+     * Explores the paths of the clues in order, as the recursive backtracking of
+     * ImprovedCombinationExclusionSolver, on an explicit stack: a frame is entered when pushed,
+     * and resumed when the frame above it fails.
+     */
+    private boolean backtracking() {
+        top = 0;
+        push(clueCells[0], 0);
+        boolean enter = true;
+        while (top > 0) {
+            int f = top - 1, c = frameCell[f], idx = frameIdx[f];
+            if (enter) {
+                if (outOfBudget())
+                    return false;
+                if (idx == 0)
+                    recordProgress(resolved);
+                frameClue[f] = cluePosition;
+                frameMark[f] = trailSize;
+                if (bit(valid, cluePosition)) {
+                    frameKind[f] = SKIP;
+                    if (++cluePosition == clueCells.length)
+                        return solutionFound();
+                    push(clueCells[cluePosition], 0);
+                    continue;
+                }
+                int k = cluePosition, v = values[clueCells[k]], p = chainStart[k] + idx;
+
+                if (idx == v - 1) {
+                    if (values[c] != v) {
+                        top--;
+                        enter = false;
+                        continue;
+                    }
+                    frameKind[f] = END;
+                    // The path resolves its clue, and its end unless the propagation flagged it already.
+                    resolved += state(c) != COLORED ? 2 : 1;
+                    if (state(c) != COLORED) {
+                        setState(c, PATH);
+                        setValid(clueOf(c), true);
+                        toggleOracle(c);
+                    }
+                    if (++cluePosition == clueCells.length)
+                        return solutionFound();
+                    push(clueCells[cluePosition], 0);
+                    continue;
+                }
+                if (bit(owned, p + 1)) {
+                    if (!adjacent(c, chainPool[p + 1])) {
+                        top--;
+                        enter = false;
+                        continue;
+                    }
+                    frameKind[f] = FORCED;
+                    if (state(c) != COLORED)
+                        setState(c, PATH);
+                    push(chainPool[p + 1], idx + 1);
+                    continue;
+                }
+                frameKind[f] = LOOP;
+                frameMove[f] = 0;
+                if (state(c) != COLORED)
+                    setState(c, PATH);
+            } else if (frameKind[f] != LOOP) {
+                // The frame above failed: the frame fails too.
+                if (frameKind[f] == END)
+                    resolved -= state(c) != COLORED ? 2 : 1;
+                undo(frameMark[f]);
+                cluePosition = frameClue[f];
+                top--;
+                continue;
+            }
+
+            // Tries the next move of a branching.
+            int v = values[clueCells[cluePosition]], next = -1, d = frameMove[f];
+            int moves = neighbours.freeMoves(states, values, n, m, c, idx + 1 == v - 1);
+            for (; d < 4 && next < 0; d++) {
+                int nb = neighbour(c, d);
+                if ((moves >> d & 1) != 0 && reachable(nb, idx, v))
+                    next = nb;
+            }
+            frameMove[f] = (byte) d;
+            if (next >= 0) {
+                push(next, idx + 1);
+                enter = true;
+            } else {
+                undo(frameMark[f]);
+                top--;
+                enter = false;
+            }
+        }
+        return false;
+    }
+
+    // Colors the cells of the search path, and writes the path of each clue in its chain.
+    private boolean solutionFound() {
+        for (int f = 0; f < top; f++)
+            if (frameKind[f] != SKIP) {
+                int k = frameClue[f];
+                chainPool[chainStart[k] + frameIdx[f]] = frameCell[f];
+                putBit(pathHolder, k, true);
+                putState(frameCell[f], COLORED);
+            }
+        return true;
+    }
+
+    @Override
+    Solution solution() {
+        List<int[]> paths = new ArrayList<int[]>();
+        for (int k = 0; k < clueCells.length; k++)
+            if (bit(pathHolder, k))
+                paths.add(Arrays.copyOfRange(chainPool, chainStart[k], chainStart[k + 1]));
+        return new Solution(n, m, paths.toArray(new int[paths.size()][]));
+    }
+
+    @Override
+    Cell.State[][] snapshot() {
+        Cell.State[][] snapshot = new Cell.State[n][m];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < m; j++) {
+                int s = state(i * m + j);
+                snapshot[i][j] = s == COLORED ? Cell.State.Colored
+                        : s == PATH ? Cell.State.MaybeColored : Cell.State.NotColored;
+            }
+        return snapshot;
+    }
+
+    @Override
+    int numberOfClues() {
+        return clueCells.length;
+    }
+
+    @Override
+    void load(Puzzle puzzle) {
+        throw new UnsupportedOperationException("The compact solver is sized for one instance");
+    }
+
+    @Override
+    void record(String fileName) {
+        throw new UnsupportedOperationException("The compact solver does not record its search");
+    }
+
+    @Override
+    boolean search() {
+        if (clueCells.length == 0)
+            return true;
+        long nbChangedOld;
+        do {
+            nbChangedOld = nbChanged;
+            for (int k = 0; k < clueCells.length && !aborted && !infeasible; k++)
+                if (!bit(valid, k)) {
+                    cluePosition = k;
+                    combineExclude();
+                }
+        } while (nbChangedOld != nbChanged && !aborted && !infeasible);
+        // The budget may run out during the propagation, which already resolves most clues.
+        resolved = 0;
+        for (long word : valid)
+            resolved += Long.bitCount(word);
+        if (!infeasible)
+            recordProgress(resolved);
+        if (aborted || infeasible)
+            return false;
+        cluePosition = 0;
+        return backtracking();
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * Excludes the empty cells with less than two neighbours a path can go through: such a cell
+ * cannot be inside a path, and cannot end one either. Corners go first, then the dead ends of
+ * corridors as the rule is called again.
+ */
+public class DeadEndRule implements DeductionRule {
+
+    @Override
+    public String name() {
+        return "dead-end";
+    }
+
+    @Override
+    public int apply(ImprovedCombinationExclusionSolver solver) {
+        int excluded = 0;
+        for (int i = 0; i < solver.n; i++)
+            for (int j = 0; j < solver.m; j++) {
+                Cell c = solver.configuration[i][j];
+                if (c.value != 0 || c.state != Cell.State.NotColored)
+                    continue;
+                int open = 0;
+                for (int k = 0; k < 4 && open < 2; k++) {
+                    int ni = i + solver.mvt[k][0], nj = j + solver.mvt[k][1];
+                    if (ni > -1 && ni < solver.n && nj > -1 && nj < solver.m && open(solver, solver.configuration[ni][nj]))
+                        open++;
+                }
+                if (open < 2) {
+                    solver.exclude(c);
+                    excluded++;
+                }
+            }
+        return excluded;
+    }
+
+    // Whether a path still to be placed may go through a cell: free, or colored on a path not closed yet.
+    private static boolean open(ImprovedCombinationExclusionSolver solver, Cell c) {
+        if (c.state == Cell.State.NotColored)
+            return true;
+        return c.state == Cell.State.Colored && c.b1 >= 0 && !solver.resolved(solver.clues().get(c.b1));
+    }
+}
@@ -0,0 +1,24 @@
+/**
+ * A cheap local deduction run by ImprovedCombinationExclusionSolver before and between its passes of
+ * combination exclusion, in the way a human solver would start: placing the paths obviously forced
+ * and ruling out the cells no path can take. A rule goes over the grid once per call; RuleEngine
+ * calls the rules again as long as one of them deduces something.
+ */
+public interface DeductionRule {
+
+    /**
+     * Returns the name of the rule, as given to the logipix.rules property.
+     *
+     * @return The name.
+     */
+    String name();
+
+    /**
+     * Applies the rule once to the current state of the solver, through its methods for rules
+     * (clues, resolved, force, exclude, fail and stopped).
+     *
+     * @param solver The solver, during its propagation.
+     * @return The number of cells colored or excluded.
+     */
+    int apply(ImprovedCombinationExclusionSolver solver);
+}
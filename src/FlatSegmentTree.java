@@ -0,0 +1,82 @@
+import java.util.Arrays;
+
+/**
+ * The 2D segment tree of TwoDSegmentTree, stored in one flat array instead of an array of rows:
+ * node (x, y) is at x * (2m) + y. The nodes of a row are contiguous as before, but reaching another
+ * row no longer loads a row object and its header, and the whole tree is one allocation.
+ */
+public class FlatSegmentTree implements ClueOracle {
+    // The dimensions of the grid, and the length of a row of the tree.
+    private int n, m, width;
+
+    // The nodes of the tree, row after row.
+    private long[] t;
+
+    /**
+     * Constructs an empty 2D segment tree for given sizes.
+     *
+     * @param n The number of rows in the grid.
+     * @param m The number of columns in the grid.
+     */
+    FlatSegmentTree(int n, int m) {
+        this.n = n;
+        this.m = m;
+        width = m << 1;
+        t = new long[(n << 1) * width];
+    }
+
+    @Override
+    public boolean reset(int n, int m) {
+        this.n = n;
+        this.m = m;
+        width = m << 1;
+        if (t.length < (n << 1) * width)
+            t = new long[(n << 1) * width];
+        else
+            Arrays.fill(t, 0, (n << 1) * width, 0);
+        return true;
+    }
+
+    @Override
+    public void change(int x, int y, int value) {
+        x += n;
+        y += m;
+        t[x * width + y] ^= 1L << value;
+
+        // Propagates the change upwards, as in TwoDSegmentTree.
+        for (int tx = x; tx > 0; tx >>= 1) {
+            int row = tx * width, parent = (tx >> 1) * width, sibling = (tx ^ 1) * width;
+            for (int ty = y; ty > 0; ty >>= 1) {
+                if (tx > 1)
+                    t[parent + ty] = t[row + ty] | t[sibling + ty];
+                if (ty > 1)
+                    t[row + (ty >> 1)] = t[row + ty] | t[row + (ty ^ 1)];
+            }
+        }
+    }
+
+    @Override
+    public boolean query(int x1, int y1, int x2, int y2, int value) {
+        x1 += n;
+        x2 += n;
+        y1 += m;
+        y2 += m;
+        long set = 1L << value;
+
+        for (int lx = x1, rx = x2; lx <= rx; lx = (lx + 1) >> 1, rx = (rx - 1) >> 1) {
+            int top = (lx & 1) != 0 ? lx * width : -1, bottom = (rx & 1) == 0 ? rx * width : -1;
+            if (top < 0 && bottom < 0)
+                continue;
+            for (int ly = y1, ry = y2; ly <= ry; ly = (ly + 1) >> 1, ry = (ry - 1) >> 1) {
+                long found = 0;
+                if ((ly & 1) != 0)
+                    found |= (top >= 0 ? t[top + ly] : 0) | (bottom >= 0 ? t[bottom + ly] : 0);
+                if ((ry & 1) == 0)
+                    found |= (top >= 0 ? t[top + ry] : 0) | (bottom >= 0 ? t[bottom + ry] : 0);
+                if ((found & set) != 0)
+                    return true;
+            }
+        }
+        return false;
+    }
+}
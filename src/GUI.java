@@ -1,12 +1,18 @@
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
 import javax.swing.*;
 
 /**
  * Represents the graphical user interface for the Logipix solver,
  * providing visual components for user interaction and displaying the puzzle grid.
+ * The window is built and drawn on the Event Dispatch Thread only; the solver thread
+ * records the changed cells in a lock-free queue, drained at each frame.
  */
-public class GUI extends JFrame implements ActionListener {
+public class GUI implements ActionListener, GridDisplay {
     // Constants representing dimensions and constraints for the GUI components.
     private final int bw = 200, bh = 60, beps = 40, maxW = 1400, maxH = 880 ;
 
@@ -16,14 +22,42 @@ public class GUI extends JFrame implements ActionListener {
     // Variables for storing the dimensions of the grid.
     private int width, height;
 
-    // Panel hosting the grid.
+    // Window of the interface, built on the Event Dispatch Thread.
+    private JFrame frame;
+
+    // Panel hosting the grid, painted from an image of the cells.
     private JPanel logipixGrid;
+    private BufferedImage gridImage;
 
     // Button to initiate the solving process.
     private JButton startButton;
 
-    // Two-dimensional array representing the individual cells in the instance grid.
-    private JButton logipixCells[][];
+    // Colors of the cells (GREY, RED or GREEN), written by the solver thread and read by the
+    // Event Dispatch Thread, and colors last drawn on the image by the Event Dispatch Thread.
+    private final byte[] cellColors, drawnColors;
+    private static final byte GREY = 0, RED = 1, GREEN = 2;
+    private static final Color[] palette = { Color.GRAY, Color.RED, Color.GREEN };
+    private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    // Changed cells not drawn yet: a ring written by the solver thread only and read by the Event
+    // Dispatch Thread only, with a flag per cell queued. A cell is queued once until drawn, so that
+    // the ring never holds more than all the cells.
+    private final int[] dirty;
+    private final byte[] queued;
+    private volatile long dirtyTail = 0;
+    private long dirtyHead = 0;
+    // Clue of each cell, 0 if empty, and flag telling the Event Dispatch Thread to redraw every cell.
+    private final int[] values;
+    private volatile boolean redrawAll = true;
+
+    // Font of the clues, and rectangle of the cells drawn by the current frame.
+    private Font font;
+    private int minI, maxI, minJ, maxJ;
+
+    // Timer drawing the changed cells on the Event Dispatch Thread, and its delay in milliseconds.
+    private Timer frameTimer;
+    private final int delay;
+    public static final int DEFAULT_FPS = 30;
 
     // The solver algorithm to be run.
     private Runnable solver;
@@ -32,18 +66,45 @@ public class GUI extends JFrame implements ActionListener {
     private boolean launched = false;
 
     /**
-     * Constructs the GUI with specified grid dimensions and solver algorithm.
+     * Constructs the GUI with specified grid dimensions and solver algorithm, refreshed DEFAULT_FPS times per second.
      *
      * @param width  The width of the instance grid.
      * @param height The height of the instance grid.
      * @param solver The solver algorithm encapsulated as a Runnable.
      */
     public GUI(int width, int height, Runnable solver) {
-        // Initial setup for the frame.
+        this(width, height, solver, DEFAULT_FPS);
+    }
+
+    /**
+     * Constructs the GUI with specified grid dimensions, solver algorithm and frame rate.
+     * The solver only records the colors of the cells; the changed cells are drawn
+     * in batches, at most fps times per second, on the Event Dispatch Thread, where the
+     * window is built too.
+     *
+     * @param width  The width of the instance grid.
+     * @param height The height of the instance grid.
+     * @param solver The solver algorithm encapsulated as a Runnable.
+     * @param fps    The number of frames drawn per second.
+     * @throws IllegalArgumentException If fps is not positive.
+     */
+    public GUI(int width, int height, Runnable solver, int fps) {
         this.width = width;
         this.height = height;
         this.solver = solver;
-        this.setTitle("Logipix");
+        this.delay = delay(fps);
+        this.cellColors = new byte[width * height];
+        this.drawnColors = new byte[width * height];
+        this.values = new int[width * height];
+        this.dirty = new int[width * height];
+        this.queued = new byte[width * height];
+        SwingUtilities.invokeLater(this::createFrame);
+    }
+
+    // Builds and shows the window, on the Event Dispatch Thread.
+    private void createFrame() {
+        // Initial setup for the frame.
+        frame = new JFrame("Logipix");
         
         // Adjusting cell size to fit within maximum frame dimensions.
         if (sizeB * width + bw > maxW) {
@@ -52,22 +113,45 @@ public class GUI extends JFrame implements ActionListener {
         if(sizeB * height + beps > maxH) {
         	sizeB = Math.floorDiv(maxH - beps, height);
         }
+        sizeB = Math.max(sizeB, 1);
 
         // Configuring frame properties.
-        this.setSize(sizeB * width + bw, sizeB * height + beps);
-        this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        this.setResizable(false);
-        this.getContentPane().setBackground(Color.black);
-        this.setLayout(null);
+        frame.setSize(sizeB * width + bw, sizeB * height + beps);
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.setResizable(false);
+        frame.getContentPane().setBackground(Color.black);
+        frame.setLayout(null);
 
         // Initializing components.
         init_button();
         init_grid();
 
         // Adding components to the frame and making it visible.
-        this.add(logipixGrid);
-        this.add(startButton);
-        this.setVisible(true);
+        frame.add(logipixGrid);
+        frame.add(startButton);
+        frame.setVisible(true);
+
+        frameTimer = new Timer(delay, e -> drawFrame());
+        frameTimer.start();
+    }
+
+    /**
+     * Changes the number of frames drawn per second.
+     *
+     * @param fps The number of frames per second.
+     * @throws IllegalArgumentException If fps is not positive.
+     */
+    public void setFrameRate(int fps) {
+        int delay = delay(fps);
+        // Runs after createFrame, queued on the Event Dispatch Thread before.
+        SwingUtilities.invokeLater(() -> frameTimer.setDelay(delay));
+    }
+
+    // Delay between two frames, at least 1 ms so that the timer leaves the Event Dispatch Thread some time.
+    private static int delay(int fps) {
+        if (fps <= 0)
+            throw new IllegalArgumentException("The frame rate must be positive: " + fps);
+        return Math.max(1, 1000 / fps);
     }
 
     /**
@@ -84,37 +168,95 @@ public class GUI extends JFrame implements ActionListener {
     }
 
     /**
-     * Creates the puzzle grid layout and initializes the properties of each cell.
+     * Creates the panel displaying the puzzle grid, painted from an image of the cells.
      */
     private void init_grid() {
+        font = new Font("Arial", Font.PLAIN, Math.max(1, Math.min(10, sizeB - 2)));
+        gridImage = new BufferedImage(sizeB * width, sizeB * height, BufferedImage.TYPE_INT_RGB);
+
         // Configuring the panel that holds the instance grid.
-        logipixGrid = new JPanel();
+        logipixGrid = new JPanel() {
+            @Override
+            protected void paintComponent(Graphics g) {
+                g.drawImage(gridImage, 0, 0, null);
+            }
+        };
         logipixGrid.setSize(sizeB * width, sizeB * height);
         logipixGrid.setLocation(0, 0);
-        logipixGrid.setLayout(null);
         logipixGrid.setOpaque(true);
         logipixGrid.setBackground(Color.BLACK);
+    }
+
+    /**
+     * Draws the cells queued since the previous frame on the image, or every cell after a change
+     * of the clues, then repaints the rectangle enclosing them. Runs on the Event Dispatch Thread.
+     */
+    private void drawFrame() {
+        boolean all = redrawAll;
+        if (all) {
+            redrawAll = false;
+            Arrays.fill(drawnColors, (byte) -1);
+        }
+        minI = height;
+        maxI = -1;
+        minJ = width;
+        maxJ = -1;
+        Graphics2D g = gridImage.createGraphics();
+        g.setFont(font);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        FontMetrics metrics = g.getFontMetrics();
 
-        logipixCells = new JButton[height][width];
+        // The flag of a cell is cleared before its color is read: a later change queues it again.
+        for (long tail = dirtyTail; dirtyHead < tail; dirtyHead++) {
+            int idx = dirty[(int) (dirtyHead % dirty.length)];
+            BYTES.setVolatile(queued, idx, (byte) 0);
+            if (!all)
+                drawCell(g, metrics, idx);
+        }
+        if (all)
+            for (int idx = 0; idx < width * height; idx++)
+                drawCell(g, metrics, idx);
+        g.dispose();
 
-        UIManager.put("Button.disabledText", Color.BLACK);
+        if (maxI >= 0)
+            logipixGrid.repaint(minJ * sizeB, minI * sizeB, (maxJ - minJ + 1) * sizeB, (maxI - minI + 1) * sizeB);
+    }
 
-        // Initializing each cell in the grid with properties.
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
+    // Draws a cell whose color differs from the one last drawn, and extends the rectangle to repaint.
+    private void drawCell(Graphics2D g, FontMetrics metrics, int idx) {
+        byte color = (byte) BYTES.getVolatile(cellColors, idx);
+        if (color == drawnColors[idx])
+            return;
+        drawnColors[idx] = color;
+        int i = idx / width, j = idx % width;
 
-                logipixCells[i][j] = new JButton();
-                logipixCells[i][j].setSize(sizeB, sizeB);
-                logipixCells[i][j].setLocation(j * sizeB, i * sizeB);
-                logipixCells[i][j].setBackground(Color.GRAY);
-                logipixCells[i][j].setEnabled(false);
-                logipixCells[i][j].setMargin(new Insets(0, 0, 0, 0));
-                logipixCells[i][j].setOpaque(true);
-                logipixCells[i][j].setFont(new Font("Arial", Font.PLAIN, 10));
-                logipixGrid.add(logipixCells[i][j]);
-            }
+        // Cell with a 1 pixel black border, and its clue if any.
+        g.setColor(Color.BLACK);
+        g.fillRect(j * sizeB, i * sizeB, sizeB, sizeB);
+        g.setColor(palette[color]);
+        g.fillRect(j * sizeB + 1, i * sizeB + 1, sizeB - 2, sizeB - 2);
+        if (values[idx] > 0 && sizeB >= 8) {
+            String text = Integer.toString(values[idx]);
+            g.setColor(Color.BLACK);
+            g.drawString(text, j * sizeB + (sizeB - metrics.stringWidth(text)) / 2,
+                    i * sizeB + (sizeB + metrics.getAscent() - metrics.getDescent()) / 2);
         }
+        minI = Math.min(minI, i);
+        maxI = Math.max(maxI, i);
+        minJ = Math.min(minJ, j);
+        maxJ = Math.max(maxJ, j);
+    }
 
+    // Records the new color of a cell, and queues the cell unless it is queued already. Runs on the
+    // solver thread; the volatile accesses order the color and the flag against drawFrame.
+    private void change(int idx, byte color) {
+        BYTES.setVolatile(cellColors, idx, color);
+        if ((byte) BYTES.getVolatile(queued, idx) == 0) {
+            BYTES.setVolatile(queued, idx, (byte) 1);
+            long tail = dirtyTail;
+            dirty[(int) (tail % dirty.length)] = idx;
+            dirtyTail = tail + 1;
+        }
     }
 
     
@@ -124,8 +266,9 @@ public class GUI extends JFrame implements ActionListener {
      * @param i Row index of the cell.
      * @param j Column index of the cell.
      */
+    @Override
     public void changeGrey(int i, int j) {
-        logipixCells[i][j].setBackground(Color.GRAY);
+        change(i * width + j, GREY);
     }
 
     /**
@@ -134,8 +277,9 @@ public class GUI extends JFrame implements ActionListener {
      * @param i Row index of the cell.
      * @param j Column index of the cell.
      */
+    @Override
     public void changeRed(int i, int j) {
-        logipixCells[i][j].setBackground(Color.RED);
+        change(i * width + j, RED);
     }
 
     /**
@@ -144,8 +288,9 @@ public class GUI extends JFrame implements ActionListener {
      * @param i Row index of the cell.
      * @param j Column index of the cell.
      */
+    @Override
     public void changeGreen(int i, int j) {
-        logipixCells[i][j].setBackground(Color.GREEN);
+        change(i * width + j, GREEN);
     }
 
     /**
@@ -155,8 +300,10 @@ public class GUI extends JFrame implements ActionListener {
      * @param j     Column index of the cell.
      * @param value Numeric value to display in the cell.
      */
+    @Override
     public void setValue(int i, int j, int value) {
-        logipixCells[i][j].setText(((Integer) value).toString());
+        values[i * width + j] = value;
+        redrawAll = true;
     }
 
     /**
@@ -0,0 +1,39 @@
+/**
+ * Receives the changes of the cells during the solving process,
+ * to display them (see GUI) or to ignore them when running without a screen.
+ */
+public interface GridDisplay {
+
+    /**
+     * Updates the specified cell to indicate a non-used state.
+     *
+     * @param i Row index of the cell.
+     * @param j Column index of the cell.
+     */
+    void changeGrey(int i, int j);
+
+    /**
+     * Updates the specified cell to indicate an in progress state.
+     *
+     * @param i Row index of the cell.
+     * @param j Column index of the cell.
+     */
+    void changeRed(int i, int j);
+
+    /**
+     * Updates the specified cell to indicate a solution state.
+     *
+     * @param i Row index of the cell.
+     * @param j Column index of the cell.
+     */
+    void changeGreen(int i, int j);
+
+    /**
+     * Sets the displayed value for the specified cell.
+     *
+     * @param i     Row index of the cell.
+     * @param j     Column index of the cell.
+     * @param value Numeric value to display in the cell.
+     */
+    void setValue(int i, int j, int value);
+}
@@ -0,0 +1,21 @@
+/**
+ * Display ignoring every change, used to run the solvers without a screen.
+ */
+public class HeadlessDisplay implements GridDisplay {
+
+    @Override
+    public void changeGrey(int i, int j) {
+    }
+
+    @Override
+    public void changeRed(int i, int j) {
+    }
+
+    @Override
+    public void changeGreen(int i, int j) {
+    }
+
+    @Override
+    public void setValue(int i, int j, int value) {
+    }
+}
@@ -1,5 +1,13 @@
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 import java.util.Vector;
+import java.util.function.BiFunction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -14,13 +22,155 @@ public class ImprovedCombinationExclusionSolver extends BaseSolver {
     private Boolean[][] combination;
     private Boolean[] validClue;
     private Vector<Cell> numberedCells;
-    private TwoDSegmentTree st;
+    private Trail trail;
+    private ClueOracle st;
+
+    // Builds an empty oracle for the dimensions of the grid.
+    private final BiFunction<Integer, Integer, ClueOracle> oracleLayout;
+
+    // Set when the propagation finds a clue without any path.
+    private boolean infeasible = false;
+
+    // Clues flagged valid by the propagation, and clues joined by the paths placed by the backtracking.
+    private int resolved = 0;
+
+    // Deduction rules run before and between the passes of combination exclusion.
+    private RuleEngine rules = RuleEngine.create();
+
+    // Checks run by the backtracking at the end of each path, and subtrees they cut.
+    private boolean partnerCheck = true, regionCheck = true;
+    private long partnerPrunes = 0, regionPrunes = 0;
+
+    // Possible partners of each clue open after the propagation (same value, close enough, and at a
+    // distance of the parity of the path length), and the number of them still open.
+    private int[][] partners;
+    private int[] openPartners;
+
+    // Cells of the path being placed, by index, and stamps of the regions flooded by the region check.
+    private Cell[] route;
+    private int[] region, flood;
+    private int regionStamp = 0;
+
+    // Largest region of free cells flooded by the region check; larger ones are assumed fine.
+    static final int REGION_LIMIT = 16;
+
+    // Order of the clues in the backtracking (clue of each step, and step of each clue), and order of
+    // the directions tried from the cells of each clue (null for the order of mvt).
+    private int[] order, rank;
+    private byte[][] turns;
+
+    // Restarts: node limits of the runs, seed of the random orders, node count ending the current run,
+    // and number of runs of the last solve.
+    private RestartSchedule restarts;
+    private long restartSeed;
+    private long restartAt = Long.MAX_VALUE;
+    private int runs = 0;
+
+    // Learning from the clues left without path (see setLearning), off in counting mode and when resuming.
+    private boolean backjumping = true, nogoods = true, learning = false;
+
+    // Levels of the backtracking: each cell entered by a path is a frame, at the ply of the search path.
+    // Frames whose choices explain the failure of each frame (bit sets of plies), frame the search unwinds
+    // to (NO_JUMP if none), ply each empty cell was taken at and clue of the path taking it, and ply of the
+    // last choice of the path that closed each clue.
+    private int ply = 0, backjump = NO_JUMP;
+    private long[][] conflicts;
+    private int[] conflictWords, taken, holder, closedAt;
+    static final int NO_JUMP = Integer.MAX_VALUE;
+
+    // Clues of the same value as each clue, close enough to be counted by the queries of its paths.
+    private Cell[][] sameValue;
+
+    // Clue without partner found by the partner check.
+    private int lonely;
+
+    // Cells taken by the other paths that stopped every path of the current clue before its end (while
+    // true of all its paths), with a stamp per cell, and ply of the first cell of the current clue.
+    private boolean direct = false;
+    private int[] blockers, blocked;
+    private int blockerCount = 0, blockStamp = 0, clueStart = 0;
+
+    // Learned nogoods: the clue, and the cells that leave it without path once all taken, one of them
+    // watched (pool of cells, first cell of each nogood, and lists of the nogoods watching each cell).
+    private int[] nogoodClue, nogoodStart, nogoodPool, nextWatcher, firstWatcher;
+    private int nogoodCount = 0, poolSize = 0;
+    static final int NOGOOD_SIZE = 24, NOGOOD_LIMIT = 1 << 16;
+
+    // Backjumps over at least one frame, and paths cut by the nogoods, during the last solve.
+    private long backjumps = 0, nogoodPrunes = 0;
+
+    // Search path, as the direction taken at each branching of the backtracking.
+    private byte[] decisions;
+    private int depth = 0, resumeDepth = 0;
+
+    // Checkpointing: target file, interval in nodes, and cost measurements.
+    private Path checkpointFile;
+    private SolverCheckpoint resume;
+    private long checkpointInterval, nextCheckpoint = Long.MAX_VALUE;
+    private long checkpointCount = 0, checkpointNanos = 0, checkpointBytes = 0;
+
+    // Paths known from a previous solve of a close instance, colored before the propagation,
+    // and paths resolved by the propagation of the last solve (cell indices, clue to clue).
+    private int[][] seeds, propagatedPaths;
+
+    // Counting mode: solutions found by all the workers, limit at which the search stops,
+    // and solutions found by this solver.
+    private AtomicLong solutionCount;
+    private long solutionLimit = 1, localCount = 0;
+
+    // Directions the first branchings of the backtracking are restricted to, in counting mode.
+    private byte[] prefix = new byte[0];
+
+    // Hashes of the states known to give no solution, at the start of a clue (open addressing, 0 if empty).
+    private long[] noSolution;
+    private int noSolutionSize = 0;
+    private long noSolutionHits = 0;
 
     ImprovedCombinationExclusionSolver(String fileName) throws IOException {
-        super(fileName);
-        st = new TwoDSegmentTree(n, m);
+        this(fileName, false);
+    }
+
+    ImprovedCombinationExclusionSolver(String fileName, boolean headless) throws IOException {
+        this(Puzzle.readText(fileName), headless);
+    }
+
+    ImprovedCombinationExclusionSolver(Puzzle puzzle, boolean headless) {
+        this(puzzle, headless, TwoDSegmentTree::new);
+    }
+
+    /**
+     * Constructs the solver with another layout of the oracle, such as FlatSegmentTree.
+     *
+     * @param puzzle       The instance to solve.
+     * @param headless     True to run without graphical user interface.
+     * @param oracleLayout Builds an empty oracle for the number of rows and columns.
+     */
+    ImprovedCombinationExclusionSolver(Puzzle puzzle, boolean headless,
+            BiFunction<Integer, Integer, ClueOracle> oracleLayout) {
+        super(puzzle, headless);
+        this.oracleLayout = oracleLayout;
         numberedCells = new Vector<Cell>();
+        indexClues();
+    }
 
+    /**
+     * Loads another instance, reusing the cells, chains, oracle and trail of the previous one when
+     * large enough. The options (budget, checkpoint file, oracle layout) are kept; the seeds, the
+     * checkpoint to resume from and the counting state are dropped.
+     *
+     * @param puzzle The instance to solve next.
+     */
+    @Override
+    void load(Puzzle puzzle) {
+        super.load(puzzle);
+        indexClues();
+    }
+
+    // Lists the clues and sets up their chains and the oracle, in the arrays of the previous instance when large enough.
+    private void indexClues() {
+        if (st == null || !st.reset(n, m))
+            st = oracleLayout.apply(n, m);
+        numberedCells.clear();
         for (int i = 0; i < n; i++)
             for (int j = 0; j < m; j++)
                 if (configuration[i][j].value > 0) {
@@ -28,22 +178,458 @@ public class ImprovedCombinationExclusionSolver extends BaseSolver {
                     st.change(i, j, configuration[i][j].value - 1);
                 }
 
-        chains = new Cell[numberedCells.size()][];
-        combination = new Boolean[numberedCells.size()][];
-        validClue = new Boolean[numberedCells.size()];
-
-        for (int k = 0; k < numberedCells.size(); k++) {
+        int clues = numberedCells.size();
+        if (validClue == null || validClue.length < clues) {
+            chains = chains == null ? new Cell[clues][] : Arrays.copyOf(chains, clues);
+            combination = combination == null ? new Boolean[clues][] : Arrays.copyOf(combination, clues);
+            validClue = new Boolean[clues];
+        }
+        for (int k = 0; k < clues; k++) {
             validClue[k] = false;
             Cell currCell = numberedCells.get(k);
-            chains[k] = new Cell[currCell.value];
-            combination[k] = new Boolean[currCell.value];
+            if (chains[k] == null || chains[k].length < currCell.value) {
+                chains[k] = new Cell[currCell.value];
+                combination[k] = new Boolean[currCell.value];
+            } else {
+                Arrays.fill(chains[k], null);
+                Arrays.fill(combination[k], null);
+            }
             chains[k][0] = currCell;
             currCell.position = k;
         }
+        if (trail == null)
+            trail = new Trail(this, validClue, st);
+        else
+            trail.reset(validClue, st);
+        if (decisions == null || decisions.length < n * m)
+            decisions = new byte[n * m];
+
+        cluePosition = 0;
+        nbChanged = 0;
+        infeasible = false;
+        depth = 0;
+        resumeDepth = 0;
+        resume = null;
+        nextCheckpoint = Long.MAX_VALUE;
+        checkpointCount = checkpointNanos = checkpointBytes = 0;
+        seeds = propagatedPaths = null;
+        solutionCount = null;
+        solutionLimit = 1;
+        localCount = 0;
+        prefix = new byte[0];
+        noSolution = null;
+        noSolutionSize = 0;
+        noSolutionHits = 0;
+        partnerPrunes = regionPrunes = 0;
+        turns = null;
+        restartAt = Long.MAX_VALUE;
+        runs = 0;
+        backjumps = nogoodPrunes = 0;
+        nogoodCount = 0;
     }
 
-    private Boolean generateFirst(Cell currCell, int idx) {
+    /**
+     * Replaces the deduction rules run during the propagation, selected by default by the
+     * logipix.rules property.
+     *
+     * @param rules The rules, with their counters.
+     */
+    void setRules(RuleEngine rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Returns the deduction rules run during the propagation, with their counters.
+     *
+     * @return The rules.
+     */
+    RuleEngine rules() {
+        return rules;
+    }
+
+    /**
+     * Selects the checks the backtracking runs each time a path is placed, both by default: that every
+     * clue without path still has an open partner it can reach, and that the regions of free cells
+     * sealed off by the path let each of their clues meet a partner.
+     *
+     * @param partners True to check the partners of the clues.
+     * @param regions  True to check the regions sealed off.
+     */
+    void setPruning(boolean partners, boolean regions) {
+        partnerCheck = partners;
+        regionCheck = regions;
+    }
+
+    /**
+     * Restarts the backtracking each time a run visits the number of nodes of the schedule without
+     * solving the instance. Each run sweeps the clues in another direction and tries the directions
+     * of the paths in another order, drawn at random, so that an early bad choice is not explored to
+     * the end; the propagation is done once and kept by all the runs.
+     * The orders of a solve only depend on the seed. Checkpoints cannot be combined with restarts,
+     * whose runs would not replay in the same order.
+     *
+     * @param schedule The node limits of the runs, or null to search once in the order of the clues.
+     * @param seed     The seed of the random orders.
+     */
+    void enableRestarts(RestartSchedule schedule, long seed) {
+        restarts = schedule;
+        restartSeed = seed;
+    }
+
+    /**
+     * Returns the number of runs of the backtracking during the last solve.
+     *
+     * @return The number of runs, 1 without restarts.
+     */
+    int runs() {
+        return runs;
+    }
+
+    /**
+     * Selects what the backtracking learns when all the paths of a clue fail, both by default.
+     * Each cell a path enters is a frame of the backtracking, and each failure is explained by the
+     * frames that chose the cells in the way: the cells taken by the other paths, the clues of the
+     * value closed around the path, the cells sealing off a region. With backjumping, a clue out of
+     * paths goes back directly to the latest of these frames, past the clues placed in between, which
+     * would fail the same way whatever their paths. A clue whose paths all stop on taken cells before
+     * their end leaves a nogood: once its cells are all taken again while the clue waits for its path,
+     * the path taking the last of them is cut. One cell of each nogood is watched, so that only the
+     * nogoods watching a cell just taken are checked. The nogoods are kept by all the runs of a solve.
+     * Neither is used in counting mode, nor when resuming from a checkpoint.
+     *
+     * @param backjumping True to backjump to the frames explaining the failures.
+     * @param nogoods     True to learn nogoods.
+     */
+    void setLearning(boolean backjumping, boolean nogoods) {
+        this.backjumping = backjumping;
+        this.nogoods = nogoods;
+    }
+
+    /**
+     * Returns the number of backjumps past at least one frame during the last solve.
+     *
+     * @return The number of backjumps.
+     */
+    long backjumps() {
+        return backjumps;
+    }
+
+    /**
+     * Returns the number of nogoods learned during the last solve.
+     *
+     * @return The number of nogoods.
+     */
+    int nogoods() {
+        return nogoodCount;
+    }
+
+    /**
+     * Returns the number of paths cut by the nogoods during the last solve.
+     *
+     * @return The number of paths cut.
+     */
+    long nogoodPrunes() {
+        return nogoodPrunes;
+    }
+
+    /**
+     * Returns the number of subtrees cut by the partner check during the last solve.
+     *
+     * @return The number of paths rejected.
+     */
+    long partnerPrunes() {
+        return partnerPrunes;
+    }
+
+    /**
+     * Returns the number of subtrees cut by the region check during the last solve.
+     *
+     * @return The number of paths rejected.
+     */
+    long regionPrunes() {
+        return regionPrunes;
+    }
+
+    /**
+     * Returns the clues of the instance, in row-major order: the position of a clue is its index.
+     *
+     * @return The clues, not to be modified.
+     */
+    Vector<Cell> clues() {
+        return numberedCells;
+    }
+
+    /**
+     * Tells whether the path of a clue is placed, from this clue or from its partner.
+     *
+     * @param clue The clue.
+     * @return True if the clue is resolved.
+     */
+    boolean resolved(Cell clue) {
+        return validClue[clue.position];
+    }
+
+    /**
+     * Places a path deduced by a rule, from a clue to its partner, as the propagation does.
+     *
+     * @param path The cells of the path, free before, from a clue to the other.
+     */
+    void force(Cell... path) {
+        Cell start = path[0], end = path[path.length - 1];
+        for (int idx = 0; idx < path.length; idx++) {
+            Cell c = path[idx];
+            c.state = Cell.State.Colored;
+            c.b1 = start.position;
+            c.next = idx + 1 < path.length ? path[idx + 1] : null;
+            chains[start.position][idx] = c;
+            combination[start.position][idx] = true;
+            gui.changeGreen(c.i, c.j);
+        }
+        validClue[start.position] = true;
+        validClue[end.position] = true;
+        if (path.length > 1) {
+            st.change(start.i, start.j, start.value - 1);
+            st.change(end.i, end.j, end.value - 1);
+        }
+        nbChanged += path.length;
+    }
+
+    /**
+     * Rules out a free cell, found by a rule to be on no path.
+     *
+     * @param c The cell, empty and free.
+     */
+    void exclude(Cell c) {
+        c.state = Cell.State.Excluded;
+        nbChanged++;
+    }
+
+    /**
+     * Ends the propagation, a rule having found a clue without any path.
+     */
+    void fail() {
+        infeasible = true;
+    }
+
+    /**
+     * Tells whether the propagation found a clue without any path.
+     *
+     * @return True if the instance is unsatisfiable.
+     */
+    boolean failed() {
+        return infeasible;
+    }
+
+    /**
+     * Tells whether the rules must stop: a clue was found without any path, or the budget of the
+     * solve is exceeded, in which case the propagation ends as timed out.
+     *
+     * @return True if the rules must stop.
+     */
+    boolean stopped() {
+        return infeasible || budgetExceeded();
+    }
 
+    /**
+     * Periodically saves the search state to a checkpoint file during the backtracking.
+     * A smaller interval loses less work on a restart but costs more time writing.
+     *
+     * @param fileName The checkpoint file, overwritten at each checkpoint.
+     * @param interval The number of backtracking nodes between two checkpoints.
+     */
+    void enableCheckpoints(String fileName, long interval) {
+        checkpointFile = Paths.get(fileName);
+        checkpointInterval = interval;
+    }
+
+    /**
+     * Returns the number of checkpoints written during the last solve.
+     *
+     * @return The number of checkpoints.
+     */
+    long checkpoints() {
+        return checkpointCount;
+    }
+
+    /**
+     * Returns the time spent writing the checkpoints of the last solve.
+     *
+     * @return The time, in nanoseconds.
+     */
+    long checkpointNanos() {
+        return checkpointNanos;
+    }
+
+    /**
+     * Returns the size of the last checkpoint written.
+     *
+     * @return The number of bytes, 0 if none was written.
+     */
+    long checkpointBytes() {
+        return checkpointBytes;
+    }
+
+    /**
+     * Resumes the solving from a checkpoint instead of starting from scratch.
+     * The propagation is restored from the file and the search path is replayed.
+     *
+     * @param fileName The checkpoint file.
+     * @throws IOException If the file cannot be read or does not match the instance.
+     */
+    void resumeFrom(String fileName) throws IOException {
+        int[] clueValues = new int[numberedCells.size()];
+        for (int k = 0; k < clueValues.length; k++)
+            clueValues[k] = numberedCells.get(k).value;
+        resume = SolverCheckpoint.read(Paths.get(fileName), clueValues);
+        if (resume.n != n || resume.m != m)
+            throw new IOException("Checkpoint does not match the instance: " + fileName);
+    }
+
+    private void saveCheckpoint() {
+        long start = System.nanoTime();
+        SolverCheckpoint cp = new SolverCheckpoint();
+        cp.n = n;
+        cp.m = m;
+        cp.clueCount = numberedCells.size();
+        cp.cluePosition = cluePosition;
+        cp.nodes = nodes;
+        cp.states = new byte[n * m];
+        cp.owners = new int[n * m];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < m; j++) {
+                cp.states[i * m + j] = (byte) configuration[i][j].state.ordinal();
+                cp.owners[i * m + j] = configuration[i][j].b1;
+            }
+        cp.validClue = new boolean[cp.clueCount];
+        cp.inOracle = new boolean[cp.clueCount];
+        cp.chains = new int[cp.clueCount][];
+        cp.combination = new boolean[cp.clueCount][];
+        for (int k = 0; k < cp.clueCount; k++) {
+            Cell clue = numberedCells.get(k);
+            cp.validClue[k] = validClue[k];
+            cp.inOracle[k] = st.query(clue.i, clue.j, clue.i, clue.j, clue.value - 1);
+            cp.chains[k] = new int[clue.value];
+            cp.combination[k] = new boolean[clue.value];
+            for (int idx = 0; idx < clue.value; idx++) {
+                Cell c = chains[k][idx];
+                cp.chains[k][idx] = c == null ? -1 : c.i * m + c.j;
+                cp.combination[k][idx] = combination[k][idx] != null && combination[k][idx];
+            }
+        }
+        cp.depth = depth;
+        cp.decisions = decisions;
+        try {
+            checkpointBytes = cp.write(checkpointFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        checkpointCount++;
+        checkpointNanos += System.nanoTime() - start;
+        nextCheckpoint = nodes + checkpointInterval;
+    }
+
+    /**
+     * Restores the state reached after the propagation from a checkpoint.
+     * Cells and clues of the search path (red cells) are reset, as they are
+     * colored again when the path is replayed.
+     */
+    private void restoreCheckpoint(SolverCheckpoint cp) {
+        int red = Cell.State.MaybeColored.ordinal(), green = Cell.State.Colored.ordinal();
+        int excluded = Cell.State.Excluded.ordinal();
+        st = oracleLayout.apply(n, m);
+        trail = new Trail(this, validClue, st);
+        for (int k = 0; k < numberedCells.size(); k++) {
+            Cell clue = numberedCells.get(k);
+            // Endpoints validated by the search are red, with their flag and oracle toggled.
+            boolean onPath = cp.validClue[k] && cp.states[clue.i * m + clue.j] == red;
+            validClue[k] = cp.validClue[k] && !onPath;
+            if (cp.inOracle[k] != onPath)
+                st.change(clue.i, clue.j, clue.value - 1);
+            for (int idx = 0; idx < clue.value; idx++) {
+                int c = cp.chains[k][idx];
+                chains[k][idx] = c < 0 ? null : configuration[c / m][c % m];
+                combination[k][idx] = cp.combination[k][idx];
+            }
+            // Chains fully resolved by the propagation are linked again, as the links are not stored.
+            boolean resolved = validClue[k] && clue.value > 1;
+            for (int idx = 0; idx < clue.value && resolved; idx++)
+                resolved = chains[k][idx] != null && combination[k][idx];
+            for (int idx = 0; resolved && idx < clue.value - 1; idx++)
+                chains[k][idx].next = chains[k][idx + 1];
+        }
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < m; j++)
+                if (cp.states[i * m + j] == green) {
+                    configuration[i][j].state = Cell.State.Colored;
+                    configuration[i][j].b1 = cp.owners[i * m + j];
+                    gui.changeGreen(i, j);
+                } else if (cp.states[i * m + j] == excluded)
+                    configuration[i][j].state = Cell.State.Excluded;
+        decisions = cp.decisions;
+        resumeDepth = cp.depth;
+        nodes = cp.nodes;
+    }
+
+    /**
+     * Gives paths resolved when solving a close instance, to be colored before the propagation
+     * instead of being deduced again. Each path is the list of its cell indices (i * m + j),
+     * from a clue to the other; paths not matching the instance are ignored.
+     *
+     * @param paths The paths, or null.
+     */
+    void seed(int[][] paths) {
+        seeds = paths;
+    }
+
+    /**
+     * Returns the paths resolved by the propagation (or given as seeds) during the last solve,
+     * before any branching of the backtracking.
+     *
+     * @return The paths, cell indices from a clue to the other, or null if the propagation did not complete.
+     */
+    int[][] propagatedPaths() {
+        return propagatedPaths;
+    }
+
+    private void applySeeds() {
+        for (int[] path : seeds) {
+            Cell start = configuration[path[0] / m][path[0] % m];
+            Cell end = configuration[path[path.length - 1] / m][path[path.length - 1] % m];
+            boolean valid = path.length > 1 && start.value == path.length && end.value == path.length
+                    && !validClue[start.position] && !validClue[end.position];
+            for (int idx = 0; idx < path.length && valid; idx++) {
+                Cell c = configuration[path[idx] / m][path[idx] % m];
+                valid = c.state == Cell.State.NotColored && (c.value == 0 || idx == 0 || idx == path.length - 1)
+                        && (idx == 0 || Math.abs(c.i - configuration[path[idx - 1] / m][path[idx - 1] % m].i)
+                                + Math.abs(c.j - configuration[path[idx - 1] / m][path[idx - 1] % m].j) == 1);
+            }
+            if (!valid)
+                continue;
+
+            Cell[] cells = new Cell[path.length];
+            for (int idx = 0; idx < path.length; idx++)
+                cells[idx] = configuration[path[idx] / m][path[idx] % m];
+            force(cells);
+        }
+    }
+
+    // Paths of the clues resolved so far, followed from the clue they were resolved from.
+    private int[][] resolvedPaths() {
+        Vector<int[]> paths = new Vector<int[]>();
+        for (Cell clue : numberedCells)
+            if (clue.value > 1 && clue.next != null && validClue[clue.position]) {
+                int[] path = new int[clue.value];
+                Cell c = clue;
+                for (int idx = 0; idx < path.length; idx++, c = c.next)
+                    path[idx] = c.i * m + c.j;
+                paths.add(path);
+            }
+        return paths.toArray(new int[paths.size()][]);
+    }
+
+    private Boolean generateFirst(Cell currCell, int idx) {
+        if (outOfBudget())
+            return false;
         Cell origineCell = chains[cluePosition][0];
 
         if (idx == origineCell.value - 1) {
@@ -51,13 +637,11 @@ public class ImprovedCombinationExclusionSolver extends BaseSolver {
                 return true;
 
             if (currCell.value == origineCell.value) {
-                currCell.state = Cell.State.MaybeColored;
-                gui.changeRed(currCell.i, currCell.j);
-
+                int mark = trail.mark();
+                trail.setState(currCell, Cell.State.MaybeColored);
                 chains[cluePosition][idx] = currCell;
                 combination[cluePosition][idx] = true;
-                currCell.state = Cell.State.NotColored;
-                gui.changeGrey(currCell.i, currCell.j);
+                trail.undo(mark);
                 return true;
             } else
                 return false;
@@ -67,16 +651,23 @@ public class ImprovedCombinationExclusionSolver extends BaseSolver {
 
             if (Math.abs(chains[cluePosition][idx + 1].i - currCell.i)
                     + Math.abs(chains[cluePosition][idx + 1].j - currCell.j) == 1) {
-                chains[cluePosition][idx] = currCell;
-                combination[cluePosition][idx] = true;
-                return generateFirst(chains[cluePosition][idx + 1], idx + 1);
+                // The cell is used by the path while it is extended, as in the general case.
+                int mark = trail.mark();
+                if (currCell.state != Cell.State.Colored)
+                    trail.setState(currCell, Cell.State.MaybeColored);
+                Boolean found = generateFirst(chains[cluePosition][idx + 1], idx + 1);
+                trail.undo(mark);
+                if (found) {
+                    chains[cluePosition][idx] = currCell;
+                    combination[cluePosition][idx] = true;
+                }
+                return found;
             } else
                 return false;
         }
-        if (currCell.state != Cell.State.Colored) {
-            currCell.state = Cell.State.MaybeColored;
-            gui.changeRed(currCell.i, currCell.j);
-        }
+        int mark = trail.mark();
+        if (currCell.state != Cell.State.Colored)
+            trail.setState(currCell, Cell.State.MaybeColored);
         
         for (int k = 0; k < 4; k++) {
             int ni = currCell.i + mvt[k][0], nj = currCell.j + mvt[k][1];
@@ -87,25 +678,20 @@ public class ImprovedCombinationExclusionSolver extends BaseSolver {
                             Math.min(n - 1, ni + origineCell.value - idx - 1),
                             Math.min(m - 1, nj + origineCell.value - idx - 1), origineCell.value - 1)) {
                 if (generateFirst(configuration[ni][nj], idx + 1)) {
-
-                    if (currCell.state != Cell.State.Colored) {
-                        currCell.state = Cell.State.NotColored;
-                        gui.changeGrey(currCell.i, currCell.j);
-                    }
+                    trail.undo(mark);
                     chains[cluePosition][idx] = currCell;
                     combination[cluePosition][idx] = true;
                     return true;
                 }
             }
         }
-        if (currCell.state != Cell.State.Colored) {
-            currCell.state = Cell.State.NotColored;
-            gui.changeGrey(currCell.i, currCell.j);
-        }
+        trail.undo(mark);
         return false;
     }
 
     private Boolean generateAll(Cell currCell, int idx) {
+        if (outOfBudget())
+            return false;
         Cell origineCell = chains[cluePosition][0];
 
         if (idx == origineCell.value - 1) {
@@ -113,14 +699,12 @@ public class ImprovedCombinationExclusionSolver extends BaseSolver {
                 return true;
 
             if (currCell.value == origineCell.value) {
-                currCell.state = Cell.State.MaybeColored;
-                gui.changeRed(currCell.i, currCell.j);
-
+                int mark = trail.mark();
+                trail.setState(currCell, Cell.State.MaybeColored);
                 if (chains[cluePosition][idx] != currCell) {
                     combination[cluePosition][idx] = false;
                 }
-                currCell.state = Cell.State.NotColored;
-                gui.changeGrey(currCell.i, currCell.j);
+                trail.undo(mark);
                 return true;
             } else
                 return false;
@@ -130,20 +714,21 @@ public class ImprovedCombinationExclusionSolver extends BaseSolver {
 
             if (Math.abs(chains[cluePosition][idx + 1].i - currCell.i)
                     + Math.abs(chains[cluePosition][idx + 1].j - currCell.j) == 1) {
-                if (generateAll(chains[cluePosition][idx + 1], idx + 1)) {
-                    if (chains[cluePosition][idx] != currCell)
-                        combination[cluePosition][idx] = false;
-                    return true;
-                } else
-                    return false;
+                int mark = trail.mark();
+                if (currCell.state != Cell.State.Colored)
+                    trail.setState(currCell, Cell.State.MaybeColored);
+                Boolean found = generateAll(chains[cluePosition][idx + 1], idx + 1);
+                trail.undo(mark);
+                if (found && chains[cluePosition][idx] != currCell)
+                    combination[cluePosition][idx] = false;
+                return found;
             } else
                 return false;
         }
         Boolean flag = false;
-        if (currCell.state != Cell.State.Colored) {
-            currCell.state = Cell.State.MaybeColored;
-            gui.changeRed(currCell.i, currCell.j);
-        }
+        int mark = trail.mark();
+        if (currCell.state != Cell.State.Colored)
+            trail.setState(currCell, Cell.State.MaybeColored);
 
         for (int k = 0; k < 4; k++) {
             int ni = currCell.i + mvt[k][0], nj = currCell.j + mvt[k][1];
@@ -162,10 +747,7 @@ public class ImprovedCombinationExclusionSolver extends BaseSolver {
             }
         }
         
-        if (currCell.state != Cell.State.Colored) {
-            currCell.state = Cell.State.NotColored;
-            gui.changeGrey(currCell.i, currCell.j);
-        }
+        trail.undo(mark);
         return flag;
     }
 
@@ -179,10 +761,19 @@ public class ImprovedCombinationExclusionSolver extends BaseSolver {
         }
         st.change(chains[cluePosition][0].i, chains[cluePosition][0].j,
                 chains[cluePosition][0].value - 1);
-        generateFirst(chains[cluePosition][0], 0);
-        generateAll(chains[cluePosition][0], 0);
+        Boolean found = generateFirst(chains[cluePosition][0], 0);
+        if (found)
+            generateAll(chains[cluePosition][0], 0);
         st.change(chains[cluePosition][0].i, chains[cluePosition][0].j,
                 chains[cluePosition][0].value - 1); 
+        // An interrupted enumeration leaves combination incomplete.
+        if (aborted)
+            return;
+        // A clue without any path left makes the instance unsatisfiable.
+        if (!found) {
+            infeasible = true;
+            return;
+        }
 
         int l = chains[cluePosition][0].value;
 
@@ -203,6 +794,8 @@ public class ImprovedCombinationExclusionSolver extends BaseSolver {
             
             if (flag) {
                 validClue[cluePosition] = true;
+                for (int k = 0; k < l - 1; k++)
+                    chains[cluePosition][k].next = chains[cluePosition][k + 1];
                 st.change(chains[cluePosition][l - 1].i, chains[cluePosition][l - 1].j,
                         chains[cluePosition][l - 1].value - 1);
             }
@@ -210,39 +803,125 @@ public class ImprovedCombinationExclusionSolver extends BaseSolver {
     }
 
     private Boolean backtracking(Cell currCell, int idx) {
+        // While replaying a checkpoint, nodes were already counted before the restart.
+        if (resumeDepth > 0) {
+            if (depth == resumeDepth)
+                resumeDepth = 0;
+        } else {
+            // Once a run reaches its limit, the search unwinds up to the restart without counting nodes.
+            if (nodes >= restartAt)
+                return false;
+            if (outOfBudget())
+                return false;
+            if (nodes >= nextCheckpoint)
+                saveCheckpoint();
+            if (idx == 0)
+                recordProgress(resolved);
+        }
 
-        if (validClue[cluePosition]) {
-            if (++cluePosition == numberedCells.size()) {
-                return true;
-            }
-            if (backtracking(chains[cluePosition][0], 0))
+        if (idx == 0 && solutionCount != null)
+            return countClue(currCell);
+        return extend(currCell, idx);
+    }
+
+    /**
+     * Explores the paths of the current clue in counting mode, from the clue cell. The states
+     * already known to give no solution are skipped, and the new ones remembered.
+     */
+    private Boolean countClue(Cell clue) {
+        if (solutionCount.get() >= solutionLimit)
+            return false;
+        // Above the split depth, the task restricts the subtree: its count is not the one of the state.
+        boolean cached = noSolution != null && depth >= prefix.length;
+        long key = trail.hash() * 31 + cluePosition;
+        key = key == 0 ? 1 : key;
+        if (cached && knownWithoutSolution(key)) {
+            noSolutionHits++;
+            return false;
+        }
+        long before = localCount;
+        Boolean found = extend(clue, 0);
+        if (!found && cached && localCount == before && !aborted && solutionCount.get() < solutionLimit)
+            rememberWithoutSolution(key);
+        return found;
+    }
+
+    // Extends the path of the current clue from one of its cells, then explores the following clues.
+    private Boolean extend(Cell currCell, int idx) {
+        if (validClue[order[cluePosition]]) {
+            if (++cluePosition == numberedCells.size() ? solutionFound()
+                    : backtracking(chains[order[cluePosition]][0], 0))
                 return true;
             cluePosition--;
             return false;
         }
-        Cell origineCell = chains[cluePosition][0];
+        int frame = ply++;
+        if (learning) {
+            forget(frame);
+            if (idx == 0) {
+                clueStart = frame;
+                direct = nogoods;
+                blockerCount = 0;
+                blockStamp++;
+            }
+        }
+        Boolean found = place(currCell, idx);
+        ply--;
+        // Once a run ends, the search unwinds without learning anything.
+        if (found || !learning || aborted || nodes >= restartAt || backjump < frame)
+            return found;
+        backjump = NO_JUMP;
+        // The cell of the frame was chosen by the frame before, but the first one of the path by none.
+        if (idx > 0)
+            conflict(frame, frame - 1);
+        else if (direct)
+            learn(order[cluePosition]);
+        if (backjumping) {
+            int target = culprit(frame);
+            if (target >= 0)
+                merge(frame, target);
+            if (target < frame - 1)
+                backjumps++;
+            backjump = target;
+        }
+        return false;
+    }
+
+    // Places the cell of the current frame on the path of the current clue, and goes on from it.
+    private Boolean place(Cell currCell, int idx) {
+        Cell[] chain = chains[order[cluePosition]];
+        Cell origineCell = chain[0];
+        route[idx] = currCell;
 
         if (idx == origineCell.value - 1) {
             if (currCell.value == origineCell.value) {
+                int mark = trail.mark();
+                // The path resolves its clue, and its end unless the propagation flagged it already.
+                int joined = currCell.state != Cell.State.Colored ? 2 : 1;
+                resolved += joined;
                 if (currCell.state != Cell.State.Colored) {
-                    currCell.state = Cell.State.MaybeColored;
-                    gui.changeRed(currCell.i, currCell.j);
-                    validClue[currCell.position] = true;
-                    st.change(currCell.i, currCell.j, currCell.value - 1);
+                    trail.setState(currCell, Cell.State.MaybeColored);
+                    trail.setValid(currCell.position, true);
+                    trail.toggleOracle(currCell);
                 }
-                if (++cluePosition == numberedCells.size() || backtracking(chains[cluePosition][0], 0)) {
+                boolean found;
+                if (++cluePosition == numberedCells.size())
+                    found = solutionFound();
+                else {
+                    direct = false;
+                    found = feasible(origineCell, currCell) && backtracking(chains[order[cluePosition]][0], 0);
+                    reopen(origineCell, currCell);
+                    direct = false;
+                }
+                if (found) {
                     if (currCell.state != Cell.State.Colored) {
                         currCell.state = Cell.State.Colored;
                         gui.changeGreen(currCell.i, currCell.j);
                     }
                     return true;
                 } else {
-                    if (currCell.state != Cell.State.Colored) {
-                        currCell.state = Cell.State.NotColored;
-                        gui.changeGrey(currCell.i, currCell.j);
-                        validClue[currCell.position] = false;
-                        st.change(currCell.i, currCell.j, currCell.value - 1);
-                    }
+                    trail.undo(mark);
+                    resolved -= joined;
                     cluePosition--;
                     return false;
                 }
@@ -250,76 +929,698 @@ public class ImprovedCombinationExclusionSolver extends BaseSolver {
                 return false;
         }
 
-        if (chains[cluePosition][idx + 1].state == Cell.State.Colored
-                && chains[cluePosition][idx + 1].b1 == origineCell.position) {
-            if (Math.abs(chains[cluePosition][idx + 1].i - currCell.i)
-                    + Math.abs(chains[cluePosition][idx + 1].j - currCell.j) == 1) {
-                if (currCell.state != Cell.State.Colored) {
-                    currCell.state = Cell.State.MaybeColored;
-                    gui.changeRed(currCell.i, currCell.j);
+        if (chain[idx + 1].state == Cell.State.Colored
+                && chain[idx + 1].b1 == origineCell.position) {
+            if (Math.abs(chain[idx + 1].i - currCell.i)
+                    + Math.abs(chain[idx + 1].j - currCell.j) == 1) {
+                int mark = trail.mark();
+                if (currCell.state != Cell.State.Colored && !take(currCell)) {
+                    trail.undo(mark);
+                    return false;
                 }
-                if (backtracking(chains[cluePosition][idx + 1], idx + 1)) {
+                Cell nextCell = chain[idx + 1];
+                if (backtracking(nextCell, idx + 1)) {
                     if (currCell.state != Cell.State.Colored) {
                         currCell.state = Cell.State.Colored;
                         gui.changeGreen(currCell.i, currCell.j);
                     }
+                    currCell.next = nextCell;
                     return true;
                 }
-                if (currCell.state != Cell.State.Colored) {
-                    currCell.state = Cell.State.NotColored;
-                    gui.changeGrey(currCell.i, currCell.j);
-                }
+                trail.undo(mark);
                 return false;
             } else
                 return false;
         }
 
-        if (currCell.state != Cell.State.Colored) {
-            currCell.state = Cell.State.MaybeColored;
-            gui.changeRed(currCell.i, currCell.j);
+        int mark = trail.mark();
+        if (currCell.state != Cell.State.Colored && !take(currCell)) {
+            trail.undo(mark);
+            return false;
         }
 
-        for (int k = 0; k < 4; k++) {
-            int ni = currCell.i + mvt[k][0], nj = currCell.j + mvt[k][1];
+        // When replaying a checkpoint, directions explored before the restart are skipped.
+        for (int k = depth < resumeDepth ? decisions[depth] : 0; k < 4; k++) {
+            if (depth < prefix.length && k != prefix[depth])
+                continue;
+            int turn = turns == null ? k : turns[origineCell.position][k];
+            int ni = currCell.i + mvt[turn][0], nj = currCell.j + mvt[turn][1];
             if (ni > -1 && ni < n && nj > -1 && nj < m && configuration[ni][nj].state == Cell.State.NotColored
                     && (idx + 1 == origineCell.value - 1 || configuration[ni][nj].value == 0)
                     && st.query(Math.max(0, ni - origineCell.value + idx + 1),
                             Math.max(0, nj - origineCell.value + idx + 1),
                             Math.min(n - 1, ni + origineCell.value - idx - 1),
                             Math.min(m - 1, nj + origineCell.value - idx - 1), origineCell.value - 1)) {
-                if (backtracking(configuration[ni][nj], idx + 1)) {
+                decisions[depth++] = (byte) k;
+                Boolean found = backtracking(configuration[ni][nj], idx + 1);
+                depth--;
+                if (found) {
                     if (currCell.state != Cell.State.Colored) {
                         currCell.state = Cell.State.Colored;
                         gui.changeGreen(currCell.i, currCell.j);
                     }
+                    currCell.next = configuration[ni][nj];
                     return true;
                 }
+                // The frames after a backjump target fail the same way whatever their other choices.
+                if (backjump <= ply - 1) {
+                    if (backjump < ply - 1)
+                        break;
+                    backjump = NO_JUMP;
+                }
+            } else if (depth < resumeDepth)
+                throw new IllegalStateException("Checkpoint does not match the instance.");
+            else if (learning)
+                blocked(origineCell, idx, ni, nj);
+        }
+
+        trail.undo(mark);
+        return false;
+    }
+
+    // Lists the possible partners of the clues open after the propagation, for the checks of the backtracking.
+    private void preparePruning() {
+        int clues = numberedCells.size(), longest = 1;
+        partners = new int[clues][];
+        openPartners = new int[clues];
+        int[] found = new int[clues];
+        for (Cell clue : numberedCells) {
+            int k = clue.position, v = clue.value, count = 0;
+            longest = Math.max(longest, v);
+            if (open(clue))
+                for (int i = Math.max(0, clue.i - v + 1); i <= Math.min(n - 1, clue.i + v - 1); i++) {
+                    int reach = v - 1 - Math.abs(i - clue.i);
+                    for (int j = Math.max(0, clue.j - reach); j <= Math.min(m - 1, clue.j + reach); j++) {
+                        Cell other = configuration[i][j];
+                        int distance = Math.abs(i - clue.i) + Math.abs(j - clue.j);
+                        if (other != clue && other.value == v && (v - 1 - distance) % 2 == 0 && open(other))
+                            found[count++] = other.position;
+                    }
+                }
+            partners[k] = Arrays.copyOf(found, count);
+            openPartners[k] = count;
+        }
+        route = new Cell[longest];
+        if (region == null || region.length < n * m) {
+            region = new int[n * m];
+            flood = new int[n * m];
+            regionStamp = 0;
+        }
+        prepareLearning();
+    }
+
+    // Sets up the conflict sets of the frames and the nogoods, when learning during this search.
+    private void prepareLearning() {
+        learning = (backjumping || nogoods) && solutionCount == null && resume == null;
+        backjump = NO_JUMP;
+        ply = 0;
+        nogoodCount = poolSize = 0;
+        if (!learning)
+            return;
+        int clues = numberedCells.size();
+        sameValue = new Cell[clues][];
+        Cell[] found = new Cell[clues];
+        // Only the clues left to the backtracking place paths, each looking around within its value.
+        for (Cell clue : numberedCells) {
+            if (validClue[clue.position])
+                continue;
+            int v = clue.value, count = 0;
+            for (int i = Math.max(0, clue.i - v); i <= Math.min(n - 1, clue.i + v); i++)
+                for (int j = Math.max(0, clue.j - v); j <= Math.min(m - 1, clue.j + v); j++)
+                    if (configuration[i][j].value == v && configuration[i][j] != clue)
+                        found[count++] = configuration[i][j];
+            sameValue[clue.position] = Arrays.copyOf(found, count);
+        }
+        closedAt = new int[clues];
+        if (taken == null || taken.length < n * m) {
+            taken = new int[n * m];
+            holder = new int[n * m];
+            blocked = new int[n * m];
+            firstWatcher = new int[n * m];
+            blockStamp = 0;
+        }
+        conflicts = new long[n * m + 1][];
+        conflictWords = new int[n * m + 1];
+        blockers = new int[NOGOOD_SIZE];
+        Arrays.fill(firstWatcher, -1);
+        if (nogoodClue == null) {
+            nogoodClue = new int[256];
+            nogoodStart = new int[256];
+            nextWatcher = new int[256];
+            nogoodPool = new int[4096];
+        }
+    }
+
+    // Whether a clue has no path after the propagation, nor the end of its path.
+    private boolean open(Cell clue) {
+        return !validClue[clue.position] && (clue.value == 1 || combination[clue.position][clue.value - 1] == null
+                || !combination[clue.position][clue.value - 1]);
+    }
+
+    // Whether a clue is still without path during the backtracking.
+    private boolean waiting(int position) {
+        return rank[position] >= cluePosition && !validClue[position];
+    }
+
+    // Orders the clues as in the grid, and the directions as in mvt.
+    private void naturalOrder() {
+        int clues = numberedCells.size();
+        order = new int[clues];
+        rank = new int[clues];
+        for (int k = 0; k < clues; k++)
+            order[k] = rank[k] = k;
+        turns = null;
+    }
+
+    /**
+     * Draws the orders of the clues and of the directions of the next run. The clues are swept by rows
+     * or by columns, each one way or the other, at random: following the clues across the grid keeps
+     * the clues placed in a row close to each other, which a shuffled order loses.
+     */
+    private void shuffleOrder(SplittableRandom random) {
+        int clues = numberedCells.size();
+        boolean byColumns = random.nextBoolean(), up = random.nextBoolean(), left = random.nextBoolean();
+        long[] keys = new long[clues];
+        for (int k = 0; k < clues; k++) {
+            Cell clue = numberedCells.get(k);
+            int i = up ? n - 1 - clue.i : clue.i, j = left ? m - 1 - clue.j : clue.j;
+            keys[k] = (long) (byColumns ? j * n + i : i * m + j) << 32 | k;
+        }
+        Arrays.sort(keys);
+        for (int k = 0; k < clues; k++) {
+            order[k] = (int) keys[k];
+            rank[order[k]] = k;
+        }
+        if (turns == null)
+            turns = new byte[clues][];
+        for (int k = 0; k < clues; k++) {
+            byte[] t = { 0, 1, 2, 3 };
+            for (int d = 3; d > 0; d--) {
+                int r = random.nextInt(d + 1);
+                byte swap = t[d];
+                t[d] = t[r];
+                t[r] = swap;
+            }
+            turns[k] = t;
+        }
+    }
+
+
+    /**
+     * Checks the state reached once the path of a clue ends on its partner: every clue still without
+     * path must keep an open partner, and the regions the path seals off must let their clues meet.
+     * The partners are closed even when the check fails, and reopened by reopen.
+     */
+    private boolean feasible(Cell clue, Cell partner) {
+        boolean alone = close(clue) | close(partner);
+        if (learning)
+            closedAt[clue.position] = closedAt[partner.position] = ply - 2;
+        if (alone && partnerCheck) {
+            partnerPrunes++;
+            if (learning)
+                blamePartners(lonely);
+            return false;
+        }
+        if (regionCheck && !regionsPairable(clue.value)) {
+            regionPrunes++;
+            return false;
+        }
+        if (learning && nogoods && !(watch(clue.i * m + clue.j, null) && watch(partner.i * m + partner.j, null)))
+            return false;
+        return true;
+    }
+
+    // Takes a clue out of the open partners of the others, and tells whether one of them is left without any.
+    private boolean close(Cell clue) {
+        boolean alone = false;
+        for (int p : partners[clue.position])
+            if (--openPartners[p] == 0 && waiting(p)) {
+                alone = true;
+                lonely = p;
+            }
+        return alone;
+    }
+
+    private void reopen(Cell clue, Cell partner) {
+        for (int p : partners[clue.position])
+            openPartners[p]++;
+        for (int p : partners[partner.position])
+            openPartners[p]++;
+    }
+
+    // Floods the small regions of free cells next to the path just placed, and checks their clues.
+    private boolean regionsPairable(int length) {
+        if (regionStamp > Integer.MAX_VALUE - 4 * n * m) {
+            Arrays.fill(region, 0);
+            regionStamp = 0;
+        }
+        int first = regionStamp + 1;
+        for (int idx = 0; idx < length; idx++)
+            for (int k = 0; k < 4; k++) {
+                int ni = route[idx].i + mvt[k][0], nj = route[idx].j + mvt[k][1];
+                if (ni < 0 || ni >= n || nj < 0 || nj >= m || region[ni * m + nj] >= first)
+                    continue;
+                Cell c = configuration[ni][nj];
+                if (c.state != Cell.State.NotColored)
+                    continue;
+                int stamp = ++regionStamp;
+                if (c.value > 0) {
+                    region[ni * m + nj] = stamp;
+                    if (!pairable(c, stamp)) {
+                        if (learning)
+                            blameRegion(c, 0);
+                        return false;
+                    }
+                } else if (narrow(ni, nj) && !floodPairable(ni * m + nj, stamp, first))
+                    return false;
             }
+        return true;
+    }
+
+    // Whether an empty cell next to the path is blocked on another side too: a region sealed off by the
+    // path is found from such a cell, where the path meets the other borders of the region.
+    private boolean narrow(int i, int j) {
+        int blocked = 0;
+        for (int k = 0; k < 4; k++) {
+            int ni = i + mvt[k][0], nj = j + mvt[k][1];
+            if (ni < 0 || ni >= n || nj < 0 || nj >= m || configuration[ni][nj].value > 0
+                    || configuration[ni][nj].state != Cell.State.NotColored)
+                blocked++;
         }
+        return blocked > 1;
+    }
 
-        if (currCell.state != Cell.State.Colored) {
-            currCell.state = Cell.State.NotColored;
-            gui.changeGrey(currCell.i, currCell.j);
+    // Floods a region of free empty cells, up to REGION_LIMIT cells, then checks the clues around it.
+    private boolean floodPairable(int start, int stamp, int first) {
+        // Empty cells of the region from the start of flood, in the order visited, clues around it from its end.
+        int size = 0, top = 0, clues = flood.length;
+        region[start] = stamp;
+        flood[top++] = start;
+        while (size < top) {
+            int c = flood[size], i = c / m, j = c % m;
+            if (++size > REGION_LIMIT)
+                return true;
+            for (int k = 0; k < 4; k++) {
+                int ni = i + mvt[k][0], nj = j + mvt[k][1], nc = ni * m + nj;
+                if (ni < 0 || ni >= n || nj < 0 || nj >= m || region[nc] == stamp
+                        || configuration[ni][nj].state != Cell.State.NotColored)
+                    continue;
+                // An empty cell of an earlier flood of the check is of a region found too large.
+                if (region[nc] >= first && configuration[ni][nj].value == 0)
+                    return true;
+                region[nc] = stamp;
+                if (configuration[ni][nj].value == 0)
+                    flood[top++] = nc;
+                else
+                    flood[--clues] = nc;
+            }
+        }
+        for (int q = clues; q < flood.length; q++)
+            if (!pairable(configuration[flood[q] / m][flood[q] % m], stamp)) {
+                if (learning)
+                    blameRegion(configuration[flood[q] / m][flood[q] % m], size);
+                return false;
+            }
+        return true;
+    }
+
+    /**
+     * Checks a clue next to a region: when all its free neighbours are in the region, one of its open
+     * partners must be next to the region too, or next to the clue.
+     */
+    private boolean pairable(Cell clue, int stamp) {
+        if (!waiting(clue.position) || partners[clue.position].length == 0)
+            return true;
+        for (int k = 0; k < 4; k++) {
+            int ni = clue.i + mvt[k][0], nj = clue.j + mvt[k][1];
+            if (ni > -1 && ni < n && nj > -1 && nj < m && configuration[ni][nj].value == 0
+                    && configuration[ni][nj].state == Cell.State.NotColored && region[ni * m + nj] != stamp)
+                return true;
+        }
+        for (int p : partners[clue.position]) {
+            Cell other = numberedCells.get(p);
+            if (waiting(p) && (region[other.i * m + other.j] == stamp
+                    || Math.abs(other.i - clue.i) + Math.abs(other.j - clue.j) == 1))
+                return true;
         }
         return false;
     }
 
-    @Override
-    void solve() {
-        if (numberedCells.size() == 0)
+    // Takes a free cell for the path of the current clue, and tells whether no nogood forbids it.
+    private boolean take(Cell c) {
+        trail.setState(c, Cell.State.MaybeColored);
+        if (!learning || c.value > 0)
+            return true;
+        taken[c.i * m + c.j] = ply - 1;
+        holder[c.i * m + c.j] = order[cluePosition];
+        return !nogoods || watch(c.i * m + c.j, chains[order[cluePosition]][0]);
+    }
+
+    // Empties the conflict set of a frame just entered.
+    private void forget(int frame) {
+        if (conflicts[frame] != null)
+            Arrays.fill(conflicts[frame], 0, conflictWords[frame], 0);
+        conflictWords[frame] = 0;
+    }
+
+    // Adds a frame to the conflict set of a later one.
+    private void conflict(int frame, int level) {
+        if (conflicts[frame] == null)
+            conflicts[frame] = new long[conflicts.length / 64 + 1];
+        conflicts[frame][level >>> 6] |= 1L << level;
+        conflictWords[frame] = Math.max(conflictWords[frame], (level >>> 6) + 1);
+    }
+
+    // Latest frame of the conflict set of a frame, -1 if empty.
+    private int culprit(int frame) {
+        for (int w = conflictWords[frame] - 1; w >= 0; w--)
+            if (conflicts[frame][w] != 0)
+                return w * 64 + 63 - Long.numberOfLeadingZeros(conflicts[frame][w]);
+        return -1;
+    }
+
+    // Adds the conflict set of a failed frame, but the target itself, to the one of the frame it jumps to.
+    private void merge(int frame, int target) {
+        conflicts[frame][target >>> 6] &= ~(1L << target);
+        for (int w = 0; w < conflictWords[frame]; w++)
+            if (conflicts[frame][w] != 0) {
+                if (conflicts[target] == null)
+                    conflicts[target] = new long[conflicts[frame].length];
+                conflicts[target][w] |= conflicts[frame][w];
+                conflictWords[target] = Math.max(conflictWords[target], w + 1);
+            }
+    }
+
+    /**
+     * Blames a taken cell for the failure of the current frame, on a path of a clue of the given value:
+     * the frame that chose it joins the conflict set. The path of a clue of the same value could join it
+     * to the failed clue through the same cells, from the other end: for a cell of such a path, and for
+     * a clue, the last choice of the path that closed it does. While all the paths of the current clue
+     * stop before their end, a cell taken before the clue joins its nogood.
+     */
+    private void blame(Cell c, int value) {
+        int cell = c.i * m + c.j, level = level(cell, value);
+        conflict(ply - 1, level);
+        if (direct && level < clueStart && blocked[cell] != blockStamp) {
+            blocked[cell] = blockStamp;
+            if (blockerCount == NOGOOD_SIZE)
+                direct = false;
+            else
+                blockers[blockerCount++] = cell;
+        }
+    }
+
+    /**
+     * Explains why the path cannot go on to a cell: the cell is taken by another path, or no clue of
+     * the value of the path is left open in reach of the cell (the query of the oracle failed), the
+     * others being closed by other paths. The cells a path cannot use anyway (clues in the middle of
+     * the path, empty cells at its end, cells colored by the propagation) explain nothing.
+     */
+    private void blocked(Cell origin, int idx, int ni, int nj) {
+        if (ni < 0 || ni >= n || nj < 0 || nj >= m)
+            return;
+        Cell c = configuration[ni][nj];
+        if (idx + 1 == origin.value - 1 ? c.value != origin.value : c.value != 0)
+            return;
+        if (c.state == Cell.State.MaybeColored) {
+            if (c != origin)
+                blame(c, origin.value);
+        } else if (c.state == Cell.State.NotColored) {
+            int reach = origin.value - idx - 1;
+            for (Cell other : sameValue[origin.position])
+                if (other.state == Cell.State.MaybeColored && Math.abs(other.i - ni) <= reach
+                        && Math.abs(other.j - nj) <= reach)
+                    blame(other, origin.value);
+        }
+    }
+
+    // Blames the clues closed around a clue without partner, or cut off by a region, for a failed check.
+    private void blamePartners(int clue) {
+        for (int p : partners[clue])
+            if (!waiting(p))
+                blame(numberedCells.get(p), 0);
+    }
+
+    // Blames the taken cells around a region of free cells and a clue next to it, and the partners of
+    // the clue closed, for a failed region check.
+    private void blameRegion(Cell clue, int size) {
+        for (int q = -1; q < size; q++) {
+            int i = q < 0 ? clue.i : flood[q] / m, j = q < 0 ? clue.j : flood[q] % m;
+            for (int k = 0; k < 4; k++) {
+                int ni = i + mvt[k][0], nj = j + mvt[k][1];
+                if (ni > -1 && ni < n && nj > -1 && nj < m && configuration[ni][nj].value == 0
+                        && configuration[ni][nj].state == Cell.State.MaybeColored)
+                    blame(configuration[ni][nj], clue.value);
+            }
+        }
+        blamePartners(clue.position);
+    }
+
+    /**
+     * Learns the nogood of the current clue, whose paths all stopped on the cells just blamed. The
+     * cell taken last is watched: the backjump frees it first.
+     */
+    private void learn(int clue) {
+        if (blockerCount == 0 || nogoodCount == NOGOOD_LIMIT)
+            return;
+        if (nogoodCount + 1 >= nogoodClue.length) {
+            nogoodClue = Arrays.copyOf(nogoodClue, 2 * nogoodClue.length);
+            nogoodStart = Arrays.copyOf(nogoodStart, 2 * nogoodStart.length);
+            nextWatcher = Arrays.copyOf(nextWatcher, 2 * nextWatcher.length);
+        }
+        if (poolSize + blockerCount > nogoodPool.length)
+            nogoodPool = Arrays.copyOf(nogoodPool, 2 * nogoodPool.length + blockerCount);
+        int watched = blockers[0], latest = -1;
+        for (int b = 0; b < blockerCount; b++) {
+            int cell = blockers[b], level = level(cell, numberedCells.get(clue).value);
+            nogoodPool[poolSize + b] = cell;
+            if (level > latest) {
+                latest = level;
+                watched = cell;
+            }
+        }
+        int k = nogoodCount++;
+        nogoodClue[k] = clue;
+        nogoodStart[k] = poolSize;
+        poolSize += blockerCount;
+        nogoodStart[k + 1] = poolSize;
+        nextWatcher[k] = firstWatcher[watched];
+        firstWatcher[watched] = k;
+    }
+
+    // Ply of the choice blamed for a taken cell, on a path of a clue of the given value.
+    private int level(int cell, int value) {
+        Cell c = configuration[cell / m][cell % m];
+        if (c.value > 0)
+            return closedAt[c.position];
+        int clue = holder[cell];
+        return clue != order[cluePosition] && chains[clue][0].value == value ? closedAt[clue] : taken[cell] - 1;
+    }
+
+    // Whether a cell of a nogood is taken: an empty cell by any path, a clue once its path is placed.
+    private boolean isTaken(int cell, Cell placing) {
+        Cell c = configuration[cell / m][cell % m];
+        return c.state != Cell.State.NotColored && c != placing;
+    }
+
+    /**
+     * Moves the nogoods watching a cell just taken to another free cell of theirs, and tells whether
+     * none of them has all its cells taken while its clue waits for its path.
+     *
+     * @param cell    The cell, empty, or a clue whose path was just placed.
+     * @param placing The clue whose path is being placed, or null between two clues.
+     */
+    private boolean watch(int cell, Cell placing) {
+        for (int k = firstWatcher[cell], previous = -1; k >= 0;) {
+            int next = nextWatcher[k], free = -1;
+            for (int q = nogoodStart[k]; q < nogoodStart[k + 1] && free < 0; q++)
+                if (nogoodPool[q] != cell && !isTaken(nogoodPool[q], placing))
+                    free = nogoodPool[q];
+            if (free >= 0) {
+                if (previous < 0)
+                    firstWatcher[cell] = next;
+                else
+                    nextWatcher[previous] = next;
+                nextWatcher[k] = firstWatcher[free];
+                firstWatcher[free] = k;
+            } else {
+                // A path of the value being placed may still end on the clue through its cells.
+                int clue = nogoodClue[k], value = numberedCells.get(clue).value;
+                if (waiting(clue) && (placing == null || placing.value != value)) {
+                    nogoodPrunes++;
+                    direct = false;
+                    for (int q = nogoodStart[k]; q < nogoodStart[k + 1]; q++)
+                        blame(configuration[nogoodPool[q] / m][nogoodPool[q] % m], value);
+                    return false;
+                }
+                previous = k;
+            }
+            k = next;
+        }
+        return true;
+    }
+
+    // Counts a solution, and tells whether the search must stop.
+    private boolean solutionFound() {
+        // A solution reached above the split depth is counted by the first task sharing its prefix only.
+        for (int d = depth; d < prefix.length; d++)
+            if (prefix[d] != 0)
+                return false;
+        localCount++;
+        return solutionCount == null || solutionCount.incrementAndGet() >= solutionLimit;
+    }
+
+    private boolean knownWithoutSolution(long key) {
+        int mask = noSolution.length - 1;
+        for (int h = (int) (key ^ (key >>> 32)) & mask;; h = (h + 1) & mask) {
+            if (noSolution[h] == key)
+                return true;
+            if (noSolution[h] == 0)
+                return false;
+        }
+    }
+
+    private void rememberWithoutSolution(long key) {
+        // The table is kept at most half full; once full, new states are no longer remembered.
+        if (2 * (noSolutionSize + 1) > noSolution.length)
             return;
-        int nbChangedOld;
-        do {
-            nbChangedOld = nbChanged;
-            for (Cell curCell : numberedCells) {
-                if (!validClue[curCell.position]) {
-                    cluePosition = curCell.position;
-                    combineExclude();
+        int mask = noSolution.length - 1;
+        int h = (int) (key ^ (key >>> 32)) & mask;
+        while (noSolution[h] != 0)
+            h = (h + 1) & mask;
+        noSolution[h] = key;
+        noSolutionSize++;
+    }
+
+    /**
+     * Counts the solutions of the instance, as one of the workers sharing the count: after the
+     * propagation, the worker takes tasks until none is left or the limit is reached. Task t
+     * restricts the first splitDepth branchings of the backtracking to the directions given by
+     * the base 4 digits of t, so that the tasks split the search tree without overlapping.
+     *
+     * @param count      The number of solutions found by all the workers.
+     * @param limit      The number of solutions at which the counting stops.
+     * @param tasks      The next task to take, shared by the workers.
+     * @param splitDepth The number of branchings fixed by a task, 4^splitDepth tasks in total.
+     * @param cacheSize  The number of states without solution remembered, a power of 2, or 0.
+     * @return The number of solutions found by this worker.
+     */
+    long countSolutions(AtomicLong count, long limit, AtomicInteger tasks, int splitDepth, int cacheSize) {
+        solutionCount = count;
+        solutionLimit = limit;
+        noSolution = cacheSize > 0 ? new long[cacheSize] : null;
+        nodes = 0;
+        aborted = false;
+        if (budget != null)
+            budget = budget.start();
+        if (!propagate())
+            return 0;
+        resolved = validClues();
+        preparePruning();
+        naturalOrder();
+
+        prefix = new byte[splitDepth];
+        for (int t = tasks.getAndIncrement(); t < 1 << (2 * splitDepth) && count.get() < limit;
+                t = tasks.getAndIncrement()) {
+            for (int d = 0; d < splitDepth; d++)
+                prefix[d] = (byte) ((t >> (2 * d)) & 3);
+            cluePosition = 0;
+            if (backtracking(chains[0][0], 0))
+                break;
+        }
+        return localCount;
+    }
+
+    /**
+     * Returns the number of explored states found in the cache of states without solution.
+     *
+     * @return The number of cache hits of the last count.
+     */
+    long cacheHits() {
+        return noSolutionHits;
+    }
+
+    // Deduces the paths forced by the clues, from the checkpoint or the seeds if any.
+    private boolean propagate() {
+        if (resume != null)
+            restoreCheckpoint(resume);
+        else {
+            if (seeds != null)
+                applySeeds();
+            int nbChangedOld;
+            do {
+                // The deductions of the rules are used by the next pass, and need no pass of their own.
+                rules.run(this);
+                nbChangedOld = nbChanged;
+                for (Cell curCell : numberedCells) {
+                    if (aborted || infeasible)
+                        break;
+                    if (!validClue[curCell.position]) {
+                        cluePosition = curCell.position;
+                        combineExclude();
+                    }
                 }
+            } while (nbChangedOld != nbChanged && !aborted && !infeasible);
+        }
+        // The paths are deduced from the clues around them only, and hold even when another clue has no path.
+        if (resume == null && !aborted)
+            propagatedPaths = resolvedPaths();
+        return !aborted && !infeasible;
+    }
+
+    // Number of clues flagged valid.
+    private int validClues() {
+        int count = 0;
+        for (int k = 0; k < numberedCells.size(); k++)
+            if (validClue[k])
+                count++;
+        return count;
+    }
+
+    // Runs the backtracking in random orders, within growing node limits, until a run ends below its limit.
+    private boolean searchWithRestarts() {
+        SplittableRandom random = new SplittableRandom(restartSeed);
+        try {
+            for (runs = 1;; runs++) {
+                shuffleOrder(random);
+                long limit = restarts.limit(runs);
+                restartAt = limit >= Long.MAX_VALUE - nodes ? Long.MAX_VALUE : nodes + limit;
+                cluePosition = 0;
+                backjump = NO_JUMP;
+                if (backtracking(chains[order[0]][0], 0))
+                    return true;
+                if (aborted || nodes < restartAt)
+                    return false;
             }
-        } while (nbChangedOld != nbChanged);
+        } finally {
+            restartAt = Long.MAX_VALUE;
+        }
+    }
+
+    @Override
+    boolean search() {
+        if (numberedCells.size() == 0)
+            return true;
+        if (restarts != null && (checkpointFile != null || resume != null))
+            throw new IllegalStateException("Checkpoints cannot be combined with restarts");
+        boolean propagated = propagate();
+        // The budget may run out during the propagation, which already resolves most clues.
+        resolved = validClues();
+        if (!infeasible)
+            recordProgress(resolved);
+        if (!propagated)
+            return false;
+        preparePruning();
+        naturalOrder();
         cluePosition = 0;
+        runs = 1;
+        checkpointCount = checkpointNanos = checkpointBytes = 0;
+        // The nodes of the enumeration of the paths do not count in the interval.
+        if (checkpointFile != null)
+            nextCheckpoint = nodes + checkpointInterval;
 
-        backtracking(chains[cluePosition][0], 0);
+        if (restarts == null)
+            return backtracking(chains[order[cluePosition]][0], 0);
+        return searchWithRestarts();
     }
 }
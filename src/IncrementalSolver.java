@@ -0,0 +1,193 @@
+import java.util.ArrayDeque;
+import java.util.Vector;
+
+/**
+ * Answers the feasibility of an instance whose clues are inserted and removed progressively.
+ * The paths resolved by the propagation of the improved combination exclusion solver are kept
+ * across updates: each update only drops the paths whose deduction it may change, and the next
+ * check colors the kept paths before the propagation instead of enumerating their clues again.
+ *
+ * A kept path stays valid as long as no cell its clues could cross is freed, and no clue of its
+ * value they could reach becomes available as a partner. Dropping a path frees its cells and
+ * its clues, so the rule is applied again to them until no more path is dropped.
+ */
+public class IncrementalSolver {
+    // Dimensions of the grid, and current value of each cell in row-major order.
+    private final int n, m;
+    private final int[] values;
+
+    // Paths resolved by the propagation, still valid for the current clues (cell indices, clue to clue).
+    private final Vector<int[]> kept = new Vector<int[]>();
+
+    // Resources allowed for each check, null if unlimited.
+    private SearchBudget budget;
+
+    // Statistics: updates, checks, and paths reused or dropped by the updates.
+    private long updates = 0, checks = 0, reused = 0, dropped = 0;
+
+    /**
+     * Constructs an empty grid.
+     *
+     * @param n The number of rows.
+     * @param m The number of columns.
+     */
+    IncrementalSolver(int n, int m) {
+        this.n = n;
+        this.m = m;
+        this.values = new int[n * m];
+    }
+
+    /**
+     * Constructs a grid holding the clues of an instance.
+     *
+     * @param puzzle The instance.
+     */
+    IncrementalSolver(Puzzle puzzle) {
+        this(puzzle.n, puzzle.m);
+        System.arraycopy(puzzle.values, 0, values, 0, values.length);
+    }
+
+    /**
+     * Sets the resources allowed for the next checks.
+     *
+     * @param budget The budget, or null for an unlimited search.
+     */
+    void setBudget(SearchBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Adds a clue on an empty cell.
+     *
+     * @param i     Row index of the cell.
+     * @param j     Column index of the cell.
+     * @param value The clue, between 1 and 63.
+     */
+    void insertClue(int i, int j, int value) {
+        int cell = index(i, j);
+        if (value < 1 || value > 63)
+            throw new IllegalArgumentException("Clue out of range: " + value);
+        if (values[cell] != 0)
+            throw new IllegalArgumentException("Cell (" + i + ", " + j + ") already holds a clue");
+        values[cell] = value;
+        updates++;
+
+        // The cell is blocked for the paths crossing it, and is a new partner for the clues of its value.
+        ArrayDeque<int[]> released = new ArrayDeque<int[]>();
+        dropCrossing(cell, released);
+        released.add(new int[] { cell, value });
+        release(released);
+    }
+
+    /**
+     * Removes the clue of a cell.
+     *
+     * @param i Row index of the cell.
+     * @param j Column index of the cell.
+     */
+    void removeClue(int i, int j) {
+        int cell = index(i, j);
+        if (values[cell] == 0)
+            throw new IllegalArgumentException("Cell (" + i + ", " + j + ") holds no clue");
+        values[cell] = 0;
+        updates++;
+
+        // The path ending on the clue is lost, and the cell becomes free for the other paths.
+        ArrayDeque<int[]> released = new ArrayDeque<int[]>();
+        dropCrossing(cell, released);
+        released.add(new int[] { cell, 0 });
+        release(released);
+    }
+
+    /**
+     * Returns the current instance.
+     *
+     * @return A copy of the grid.
+     */
+    Puzzle puzzle() {
+        return new Puzzle(n, m, values.clone());
+    }
+
+    /**
+     * Solves the current instance, starting from the paths kept from the previous checks.
+     *
+     * @return The outcome of the solve.
+     */
+    SolveResult check() {
+        ImprovedCombinationExclusionSolver solver = new ImprovedCombinationExclusionSolver(puzzle(), true);
+        solver.setBudget(budget);
+        solver.seed(kept.toArray(new int[kept.size()][]));
+        reused += kept.size();
+        checks++;
+
+        SolveResult result = solver.solve();
+        int[][] paths = solver.propagatedPaths();
+        if (paths != null) {
+            kept.clear();
+            for (int[] path : paths)
+                kept.add(path);
+        }
+        return result;
+    }
+
+    /**
+     * Summarizes the reuse of the deductions.
+     *
+     * @return A one-line report.
+     */
+    @Override
+    public String toString() {
+        return updates + " updates, " + checks + " checks, " + kept.size() + " paths kept, " + reused
+                + " reused, " + dropped + " dropped";
+    }
+
+    private int index(int i, int j) {
+        if (i < 0 || i >= n || j < 0 || j >= m)
+            throw new IllegalArgumentException("Cell (" + i + ", " + j + ") out of the grid");
+        return i * m + j;
+    }
+
+    // Drops the kept paths going through a cell.
+    private void dropCrossing(int cell, ArrayDeque<int[]> released) {
+        for (int p = kept.size() - 1; p >= 0; p--)
+            for (int c : kept.get(p))
+                if (c == cell) {
+                    drop(p, released);
+                    break;
+                }
+    }
+
+    /**
+     * Drops the kept paths reaching a released cell: a freed cell (value 0) for any path,
+     * a clue available as partner for the paths of its value. The cells and clues of the
+     * dropped paths are released in turn.
+     */
+    private void release(ArrayDeque<int[]> released) {
+        while (!released.isEmpty()) {
+            int[] r = released.poll();
+            int ri = r[0] / m, rj = r[0] % m;
+            for (int p = kept.size() - 1; p >= 0; p--) {
+                int[] path = kept.get(p);
+                if (r[1] != 0 && r[1] != path.length)
+                    continue;
+                int a = path[0], b = path[path.length - 1], steps = path.length - 1;
+                int da = Math.abs(a / m - ri) + Math.abs(a % m - rj), db = Math.abs(b / m - ri) + Math.abs(b % m - rj);
+                // A freed cell can only be inside another path of the clues, a partner must be
+                // at the end of it, at a distance of the same parity as its length.
+                boolean reached = r[1] == 0 ? Math.min(da, db) <= steps - 1
+                        : (da <= steps && (steps - da) % 2 == 0) || (db <= steps && (steps - db) % 2 == 0);
+                if (reached)
+                    drop(p, released);
+            }
+        }
+    }
+
+    private void drop(int p, ArrayDeque<int[]> released) {
+        int[] path = kept.remove(p);
+        dropped++;
+        for (int idx = 0; idx < path.length; idx++) {
+            boolean clue = idx == 0 || idx == path.length - 1;
+            released.add(new int[] { path[idx], clue ? values[path[idx]] : 0 });
+        }
+    }
+}
@@ -0,0 +1,71 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations, safe to update from many threads, with log-linear buckets:
+ * 16 buckets per power of 2 of microseconds, so that a quantile is known within 1/16 of its value.
+ */
+public class LatencyHistogram {
+    // Buckets per power of 2, as a number of bits.
+    private static final int SUB_BITS = 4, SUB = 1 << SUB_BITS;
+
+    // Count of the durations in each bucket, up to 2^40 microseconds.
+    private final AtomicLongArray counts = new AtomicLongArray((41 - SUB_BITS) * SUB + SUB);
+
+    /**
+     * Adds a duration.
+     *
+     * @param nanos The duration in nanoseconds.
+     */
+    void record(long nanos) {
+        counts.incrementAndGet(bucket(Math.max(0, nanos / 1000)));
+    }
+
+    /**
+     * Returns the number of durations recorded.
+     *
+     * @return The count.
+     */
+    long count() {
+        long total = 0;
+        for (int b = 0; b < counts.length(); b++)
+            total += counts.get(b);
+        return total;
+    }
+
+    /**
+     * Estimates a quantile of the durations recorded.
+     *
+     * @param q The quantile, between 0 and 1 (0.99 for the 99th percentile).
+     * @return The upper bound of the bucket of the quantile in milliseconds, 0 if nothing was recorded.
+     */
+    double quantileMillis(double q) {
+        long[] snapshot = new long[counts.length()];
+        long total = 0;
+        for (int b = 0; b < snapshot.length; b++)
+            total += snapshot[b] = counts.get(b);
+        if (total == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(q * total)), seen = 0;
+        for (int b = 0; b < snapshot.length; b++)
+            if ((seen += snapshot[b]) >= rank)
+                return upperBound(b) / 1000.;
+        return upperBound(snapshot.length - 1) / 1000.;
+    }
+
+    // Bucket of a duration in microseconds: exact below SUB, then SUB buckets per power of 2.
+    private static int bucket(long micros) {
+        if (micros < SUB)
+            return (int) micros;
+        int exponent = Math.min(40, 63 - Long.numberOfLeadingZeros(micros));
+        int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB - 1);
+        return (exponent - SUB_BITS + 1) * SUB + sub;
+    }
+
+    // Largest duration in microseconds falling in a bucket.
+    private static long upperBound(int b) {
+        if (b < SUB)
+            return b;
+        int exponent = b / SUB + SUB_BITS - 1, sub = b % SUB;
+        return ((long) (SUB + sub + 1) << (exponent - SUB_BITS)) - 1;
+    }
+}
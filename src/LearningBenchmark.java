@@ -0,0 +1,42 @@
+/**
+ * Measures the solve times of the improved combination exclusion solver without learning, with
+ * backjumping only, with nogoods only and with both (see setLearning), on the generated instances
+ * of TailBenchmark, the ones of RestartBenchmark. Prints the 50th, 90th, 99th percentiles and the
+ * largest time, the mean, the number of instances timed out, and the backjumps, nogoods and paths
+ * cut, for each setting.
+ *
+ * Usage: LearningBenchmark [instances, 300 by default] [timeout in ms, 5000 by default]
+ */
+public class LearningBenchmark {
+
+    /**
+     * Runs the comparison.
+     *
+     * @param args The number of instances, then the timeout of a solve.
+     */
+    public static void main(String args[]) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        long timeout = args.length > 1 ? Long.parseLong(args[1]) : 5000;
+        String[] names = { "none", "backjumping", "nogoods", "both" };
+
+        // The instances of RestartBenchmark.
+        Puzzle[] puzzles = TailBenchmark.corpus(count);
+        TailBenchmark.warmUp(puzzles);
+
+        for (int s = 0; s < names.length; s++) {
+            TailBenchmark.Times times = new TailBenchmark.Times();
+            long backjumps = 0, nogoods = 0, cut = 0;
+            for (int k = 0; k < count; k++) {
+                ImprovedCombinationExclusionSolver solver = new ImprovedCombinationExclusionSolver(puzzles[k], true);
+                solver.setBudget(new SearchBudget(timeout, SearchBudget.UNLIMITED, SearchBudget.UNLIMITED));
+                solver.setLearning((s & 1) != 0, (s & 2) != 0);
+                times.record(solver.solve());
+                backjumps += solver.backjumps();
+                nogoods += solver.nogoods();
+                cut += solver.nogoodPrunes();
+            }
+            System.out.println(String.format("%-12s %s, %d backjumps, %d nogoods, %d cut", names[s], times, backjumps,
+                    nogoods, cut));
+        }
+    }
+}
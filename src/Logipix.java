@@ -25,6 +25,24 @@ public class Logipix {
         //new CombinationExclusionSolver(file);
 
         // Uncomment to use the improved combination exclusion solver.
-        new ImprovedCombinationExclusionSolver(file);
+        ImprovedCombinationExclusionSolver solver = new ImprovedCombinationExclusionSolver(file);
+
+        // Uncomment to solve without graphical user interface, saving the search state every 10^7 nodes,
+        // and to resume from the last saved state.
+        //solver = new ImprovedCombinationExclusionSolver(file, true);
+        //solver.enableCheckpoints(file + ".ckpt", 10000000);
+        //solver.resumeFrom(file + ".ckpt");
+        //System.out.println(solver.solve());
+        //printCheckpoints(solver);
+    }
+
+    /**
+     * Prints the number of checkpoints written by the last solve of a solver, and their cost.
+     *
+     * @param solver The solver, with checkpoints enabled.
+     */
+    static void printCheckpoints(ImprovedCombinationExclusionSolver solver) {
+        System.out.println("Checkpoints: " + solver.checkpoints() + " written in " + solver.checkpointNanos() / 1000000
+                + " ms, " + solver.checkpointBytes() + " bytes each.");
     }
 }
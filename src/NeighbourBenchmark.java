@@ -0,0 +1,73 @@
+import java.util.SplittableRandom;
+
+/**
+ * Compares the neighbour engines (see NeighbourEngine): the throughput of freeMoves on random cells
+ * of a grid half colored, then the time of CompactSolver on generated instances with the engine
+ * selected by -Dlogipix.neighbours. Run with --add-modules jdk.incubator.vector to include the
+ * vectorized engine.
+ *
+ * Usage: NeighbourBenchmark [size, 500 by default] [instances, 20 by default]
+ */
+public class NeighbourBenchmark {
+
+    // Measures calls per second of an engine, with a checksum of the moves found.
+    private static double[] measure(NeighbourEngine engine, long[] states, byte[] values, int n, int m, int calls) {
+        SplittableRandom random = new SplittableRandom(1);
+        int[] cells = new int[1 << 16];
+        for (int k = 0; k < cells.length; k++)
+            cells[k] = random.nextInt(n * m);
+        long sum = 0, start = System.nanoTime();
+        for (int k = 0; k < calls; k++)
+            sum += engine.freeMoves(states, values, n, m, cells[k & (cells.length - 1)], (k & 7) == 0);
+        return new double[] { calls * 1e9 / (System.nanoTime() - start), sum };
+    }
+
+    /**
+     * Runs the comparison.
+     *
+     * @param args The size of the square grids, then the number of instances solved.
+     * @throws ReflectiveOperationException Never, the vectorized engine being optional.
+     */
+    public static void main(String args[]) throws ReflectiveOperationException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int instances = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        SplittableRandom random = new SplittableRandom(size);
+        long[] states = new long[(size * size + 31) >> 5];
+        byte[] values = new byte[size * size];
+        for (int c = 0; c < size * size; c++) {
+            states[c >> 5] |= (long) random.nextInt(2) << ((c & 31) << 1);
+            if (random.nextInt(3) == 0)
+                values[c] = (byte) (1 + random.nextInt(16));
+        }
+        NeighbourEngine[] engines = { new ScalarNeighbourEngine(), null };
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+            try {
+                engines[1] = (NeighbourEngine) Class.forName("VectorNeighbourEngine").getDeclaredConstructor()
+                        .newInstance();
+            } catch (ClassNotFoundException e) {
+                System.out.println("VectorNeighbourEngine is not compiled");
+            }
+        for (NeighbourEngine engine : engines)
+            if (engine != null) {
+                double[] best = null;
+                for (int round = 0; round < 5; round++) {
+                    double[] result = measure(engine, states, values, size, size, 20000000);
+                    if (best == null || result[0] > best[0])
+                        best = result;
+                }
+                System.out.println(engine.getClass().getName() + ": " + String.format("%.1f", best[0] / 1e6)
+                        + " million calls per second (checksum " + (long) best[1] + ")");
+            }
+
+        // Solves with the engine selected by the property, after a warm-up on the first instance.
+        PuzzleGenerator generator = new PuzzleGenerator(size / 10, size / 10, PuzzleGenerator.uniformLengths(8));
+        new CompactSolver(PuzzleGenerator.puzzleOf(generator.generate(1, 0))).solve();
+        long nodes = 0, start = System.nanoTime();
+        for (int k = 0; k < instances; k++)
+            nodes += new CompactSolver(PuzzleGenerator.puzzleOf(generator.generate(1, k))).solve().nodes;
+        System.out.println(NeighbourEngine.create().getClass().getName() + ": " + instances + " instances "
+                + size / 10 + "x" + size / 10 + " solved in " + (System.nanoTime() - start) / 1000000 + " ms, "
+                + nodes + " nodes");
+    }
+}
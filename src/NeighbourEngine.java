@@ -0,0 +1,41 @@
+/**
+ * Finds the moves extending a path from a cell of the packed grid of CompactSolver: the neighbours
+ * inside the grid, free (state 0), and without clue unless they end the path. Bit k of the result
+ * is set when the move mvt[k] of BaseSolver (right, down, left, up) is possible; the oracle is then
+ * asked about the moves left only.
+ *
+ * The scalar engine is the default. Running with -Dlogipix.neighbours=vector selects the engine of
+ * src/vector, evaluating the four neighbours in SIMD lanes with the jdk.incubator.vector module;
+ * when the module or the compiled engine is absent, the scalar engine is used instead.
+ */
+public interface NeighbourEngine {
+
+    /**
+     * Finds the possible moves from a cell.
+     *
+     * @param states The state of each cell on 2 bits, 32 cells per long.
+     * @param values The clue of each cell, 0 if empty.
+     * @param n      The number of rows.
+     * @param m      The number of columns.
+     * @param c      The cell, as i * m + j.
+     * @param end    True if the next cell ends the path, and may hold a clue.
+     * @return The moves, one bit per direction.
+     */
+    int freeMoves(long[] states, byte[] values, int n, int m, int c, boolean end);
+
+    /**
+     * Creates the engine selected by the logipix.neighbours property, if available.
+     *
+     * @return A new engine, owned by one solver.
+     */
+    static NeighbourEngine create() {
+        if ("vector".equals(System.getProperty("logipix.neighbours"))
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+            try {
+                return (NeighbourEngine) Class.forName("VectorNeighbourEngine").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // The engine is not compiled: the scalar one is used.
+            }
+        return new ScalarNeighbourEngine();
+    }
+}
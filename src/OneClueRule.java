@@ -0,0 +1,21 @@
+/**
+ * Colors the clues of 1, which are paths by themselves.
+ */
+public class OneClueRule implements DeductionRule {
+
+    @Override
+    public String name() {
+        return "one";
+    }
+
+    @Override
+    public int apply(ImprovedCombinationExclusionSolver solver) {
+        int colored = 0;
+        for (Cell clue : solver.clues())
+            if (clue.value == 1 && !solver.resolved(clue)) {
+                solver.force(clue);
+                colored++;
+            }
+        return colored;
+    }
+}
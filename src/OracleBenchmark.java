@@ -0,0 +1,86 @@
+import java.util.SplittableRandom;
+import java.util.function.BiFunction;
+
+/**
+ * Measures the throughput of change and query of each oracle layout, on random grids
+ * where a third of the cells hold a clue up to 16. Queries are the squares the solvers ask:
+ * around a random cell, of a half side up to the clue looked for.
+ *
+ * Usage: OracleBenchmark [sizes, 80,500,2000 by default] [operations per measure]
+ */
+public class OracleBenchmark {
+    private static final String[] NAMES = { "rows", "flat", "regions" };
+
+    // Builds each oracle layout, for the grid of the clues given.
+    private static ClueOracle build(int layout, int n, int m, byte[] values) {
+        ClueOracle oracle = layout == 0 ? new TwoDSegmentTree(n, m)
+                : layout == 1 ? new FlatSegmentTree(n, m) : new RegionOracle(n, m, values);
+        for (int c = 0; c < n * m; c++)
+            if (values[c] > 0)
+                oracle.change(c / m, c % m, values[c] - 1);
+        return oracle;
+    }
+
+    // Measures operations per second of change (each clue toggled twice) and query, with a checksum.
+    private static double[] measure(ClueOracle oracle, int n, int m, byte[] values, int[] clues, int operations,
+            long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long start = System.nanoTime();
+        for (int k = 0; k < operations / 2; k++) {
+            int c = clues[random.nextInt(clues.length)];
+            oracle.change(c / m, c % m, values[c] - 1);
+            oracle.change(c / m, c % m, values[c] - 1);
+        }
+        long changes = System.nanoTime() - start;
+
+        int hits = 0;
+        start = System.nanoTime();
+        for (int k = 0; k < operations; k++) {
+            int i = random.nextInt(n), j = random.nextInt(m), v = 1 + random.nextInt(16), r = random.nextInt(v);
+            if (oracle.query(Math.max(0, i - r), Math.max(0, j - r), Math.min(n - 1, i + r), Math.min(m - 1, j + r),
+                    v - 1))
+                hits++;
+        }
+        long queries = System.nanoTime() - start;
+        return new double[] { operations * 1e9 / changes, operations * 1e9 / queries, hits };
+    }
+
+    /**
+     * Runs the measures.
+     *
+     * @param args The sizes of the square grids, then optionally the number of operations per measure.
+     */
+    public static void main(String args[]) {
+        String[] sizes = (args.length > 0 ? args[0] : "80,500,2000").split(",");
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 2000000;
+        System.out.println("size,layout,changes_per_s,queries_per_s,hits");
+        for (String size : sizes) {
+            int n = Integer.parseInt(size), m = n;
+            SplittableRandom random = new SplittableRandom(n);
+            byte[] values = new byte[n * m];
+            int count = 0;
+            for (int c = 0; c < n * m; c++)
+                if (random.nextInt(3) == 0) {
+                    values[c] = (byte) (1 + random.nextInt(16));
+                    count++;
+                }
+            int[] clues = new int[count];
+            for (int c = 0, k = 0; c < n * m; c++)
+                if (values[c] > 0)
+                    clues[k++] = c;
+
+            for (int layout = 0; layout < NAMES.length; layout++) {
+                ClueOracle oracle = build(layout, n, m, values);
+                // The first rounds warm up the compiler, the best of the last ones is kept.
+                double[] best = null;
+                for (int round = 0; round < 5; round++) {
+                    double[] result = measure(oracle, n, m, values, clues, operations, round);
+                    if (round >= 2 && (best == null || result[1] > best[1]))
+                        best = result;
+                }
+                System.out.println(n + "," + NAMES[layout] + "," + String.format("%.0f", best[0]) + ","
+                        + String.format("%.0f", best[1]) + "," + (long) best[2]);
+            }
+        }
+    }
+}
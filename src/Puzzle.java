@@ -0,0 +1,137 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Represents a Logipix instance: the dimensions of the grid and the clue of each cell (0 if empty).
+ * Instances are read from and written to the text format described in the readme,
+ * or stored in bulk in a binary container (see PuzzleContainer).
+ */
+public class Puzzle {
+    // Dimensions of the grid: n rows of m columns.
+    public final int n, m;
+
+    // Value of each cell, in row-major order.
+    final int[] values;
+
+    /**
+     * Constructs an instance from its cell values.
+     *
+     * @param n      The number of rows.
+     * @param m      The number of columns.
+     * @param values The value of each cell, in row-major order.
+     * @throws IllegalArgumentException If a dimension is not positive, or the number of values does not match.
+     */
+    Puzzle(int n, int m, int[] values) {
+        if (n <= 0 || m <= 0)
+            throw new IllegalArgumentException("Invalid dimensions " + n + "x" + m);
+        if ((long) n * m != values.length)
+            throw new IllegalArgumentException("Expected " + n * m + " values, got " + values.length);
+        this.n = n;
+        this.m = m;
+        this.values = values;
+    }
+
+    /**
+     * Returns the value of a cell.
+     *
+     * @param i Row index of the cell.
+     * @param j Column index of the cell.
+     * @return The clue of the cell, 0 if the cell is empty.
+     */
+    public int value(int i, int j) {
+        return values[i * m + j];
+    }
+
+    /**
+     * Returns the largest clue of the instance.
+     *
+     * @return The largest value, 0 if the grid has no clue.
+     */
+    public int maxValue() {
+        int max = 0;
+        for (int v : values)
+            max = Math.max(max, v);
+        return max;
+    }
+
+    /**
+     * Reads an instance in the text format: the number of columns, the number of rows,
+     * then the values of the grid row by row, separated by whitespaces.
+     *
+     * @param fileName The file path of the instance.
+     * @return The instance.
+     * @throws IOException If an error occurs while reading the file, or if it is malformed.
+     */
+    static Puzzle readText(String fileName) throws IOException {
+        return parseText(Files.readAllBytes(Paths.get(fileName)), fileName);
+    }
+
+    /**
+     * Parses an instance in the text format.
+     *
+     * @param content  The text of the instance.
+     * @param fileName The origin of the text, for the error messages.
+     * @return The instance.
+     * @throws IOException If the text is malformed, or too short for its dimensions.
+     */
+    static Puzzle parseText(byte[] content, String fileName) throws IOException {
+        int[] pos = { 0 };
+        int m = nextInt(content, pos, fileName);
+        int n = nextInt(content, pos, fileName);
+        // The dimensions are checked before allocating: each value takes at least a separator and a digit.
+        if (n < 1 || m < 1)
+            throw new IOException("Malformed instance " + fileName + ": invalid dimensions " + n + "x" + m);
+        int size;
+        try {
+            size = Math.multiplyExact(n, m);
+        } catch (ArithmeticException e) {
+            throw new IOException("Malformed instance " + fileName + ": dimensions " + n + "x" + m + " too large");
+        }
+        if (size > (content.length - pos[0]) / 2)
+            throw new IOException("Malformed instance " + fileName + ": too short for " + n + "x" + m + " values");
+        int[] values = new int[size];
+        for (int c = 0; c < size; c++)
+            values[c] = nextInt(content, pos, fileName);
+        return new Puzzle(n, m, values);
+    }
+
+    /**
+     * Writes the instance in the text format read by readText.
+     *
+     * @param fileName The file path of the instance.
+     * @throws IOException If an error occurs while writing the file.
+     */
+    void writeText(String fileName) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(fileName))) {
+            out.write(m + "\n" + n + "\n");
+            for (int i = 0; i < n; i++) {
+                StringBuilder row = new StringBuilder();
+                for (int j = 0; j < m; j++) {
+                    if (j > 0)
+                        row.append(' ');
+                    row.append(values[i * m + j]);
+                }
+                out.write(row.append('\n').toString());
+            }
+        }
+    }
+
+    // Parses the next non-negative integer, skipping whitespaces; rejects integers overflowing an int.
+    private static int nextInt(byte[] content, int[] pos, String fileName) throws IOException {
+        int p = pos[0];
+        while (p < content.length && Character.isWhitespace(content[p]))
+            p++;
+        if (p == content.length || content[p] < '0' || content[p] > '9')
+            throw new IOException("Malformed instance " + fileName + " at byte " + p);
+        int value = 0;
+        while (p < content.length && content[p] >= '0' && content[p] <= '9') {
+            if (value > (Integer.MAX_VALUE - (content[p] - '0')) / 10)
+                throw new IOException("Malformed instance " + fileName + ": integer too large at byte " + p);
+            value = value * 10 + content[p++] - '0';
+        }
+        pos[0] = p;
+        return value;
+    }
+}
@@ -0,0 +1,382 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Binary container holding many instances, each optionally with a solution.
+ * The file is memory-mapped and records are decoded straight from the mapping.
+ *
+ * Layout of the file:
+ * - magic "LPXB" (int) and version (byte),
+ * - the records, one per instance,
+ * - the index: the offset of each record (long),
+ * - the footer: offset of the index (long), number of records (int), magic (int).
+ *
+ * Layout of a record (varints are unsigned LEB128):
+ * - m, n and the largest clue (varints),
+ * - the clues: either one byte per cell (DENSE), or the number of clues followed by,
+ *   for each clue in row-major order, the gap from the previous clue and the value (SPARSE),
+ * - a flag byte telling whether a solution follows, then the solution:
+ *   the number of paths and the length of each path (varints), a bitmap of the cells on a path,
+ *   the path id of each of these cells (varints), and for each of them the direction
+ *   of the next cell of its path on 2 bits (the last cell points back to the previous one).
+ */
+public class PuzzleContainer {
+    private static final int MAGIC = 0x4C505842;
+    private static final int VERSION = 1;
+    private static final int FOOTER_SIZE = 16;
+
+    // Largest grid of a record (4096x4096 cells), bounding what a sparse record can allocate.
+    static final int MAX_CELLS = 1 << 24;
+
+    // Encodings of the clues.
+    private static final int DENSE = 0, SPARSE = 1;
+
+    // Possible moves in the grid, in the order of BaseSolver: right, down, left, and up.
+    private static final int mvt[][] = { { 0, 1 }, { 1, 0 }, { 0, -1 }, { -1, 0 } };
+
+    // The mapped file (or bytes received), the end of the records and the offset of each record.
+    private final ByteBuffer buffer;
+    private final int indexOffset;
+    private final long[] offsets;
+
+    private PuzzleContainer(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        int size = buffer.capacity();
+        if (size < 5 + FOOTER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(size - 4) != MAGIC)
+            throw new IOException("Not a puzzle container");
+        if (buffer.get(4) != VERSION)
+            throw new IOException("Unsupported container version " + buffer.get(4));
+        // The footer is checked before allocating, since the bytes may come from the network.
+        long index = buffer.getLong(size - FOOTER_SIZE);
+        int count = buffer.getInt(size - 8);
+        if (count < 0 || index < 5 || index + 8L * count > size - FOOTER_SIZE)
+            throw new IOException("Corrupt container index");
+        indexOffset = (int) index;
+        offsets = new long[count];
+        for (int k = 0; k < count; k++) {
+            offsets[k] = buffer.getLong(indexOffset + 8 * k);
+            if (offsets[k] < 5 || offsets[k] >= indexOffset)
+                throw new IOException("Corrupt container index: record " + k + " at offset " + offsets[k]);
+        }
+    }
+
+    /**
+     * Maps a container file in memory.
+     *
+     * @param fileName The file path of the container, at most 2 GB.
+     * @return The container.
+     * @throws IOException If the file cannot be read or is not a container.
+     */
+    static PuzzleContainer open(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Container too large to be mapped: " + fileName);
+            return new PuzzleContainer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Reads a container already in memory, such as one received over the network.
+     *
+     * @param bytes The content of the container.
+     * @return The container.
+     * @throws IOException If the bytes are not a container.
+     */
+    static PuzzleContainer wrap(byte[] bytes) throws IOException {
+        return new PuzzleContainer(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Tells whether bytes start like a container, to tell it from an instance in the text format.
+     *
+     * @param bytes The bytes.
+     * @return true if the bytes start with the magic number of the containers.
+     */
+    static boolean isContainer(byte[] bytes) {
+        return bytes.length >= 4 && ByteBuffer.wrap(bytes).getInt(0) == MAGIC;
+    }
+
+    /**
+     * Returns the number of instances in the container.
+     *
+     * @return The number of records.
+     */
+    public int size() {
+        return offsets.length;
+    }
+
+    /**
+     * Decodes an instance.
+     *
+     * @param k The index of the record.
+     * @return The instance.
+     * @throws IllegalArgumentException If the record is malformed.
+     */
+    public Puzzle puzzle(int k) {
+        ByteBuffer in = record(k);
+        return readPuzzle(in);
+    }
+
+    /**
+     * Decodes the solution stored with an instance.
+     *
+     * @param k The index of the record.
+     * @return The solution, null if the record has none.
+     * @throws IllegalArgumentException If the record is malformed.
+     */
+    public Solution solution(int k) {
+        ByteBuffer in = record(k);
+        Puzzle puzzle = readPuzzle(in);
+        if (in.get() == 0)
+            return null;
+        int n = puzzle.n, m = puzzle.m;
+
+        int count = readVarint(in);
+        if (count < 0 || count > n * m)
+            throw new IllegalArgumentException("Malformed record: " + count + " paths");
+        int[][] paths = new int[count][];
+        for (int p = 0; p < paths.length; p++) {
+            int length = readVarint(in);
+            if (length < 1 || length > n * m)
+                throw new IllegalArgumentException("Malformed record: path of " + length + " cells");
+            paths[p] = new int[length];
+        }
+
+        // Cells on a path, from the bitmap.
+        int colored = 0;
+        int[] cells = new int[n * m];
+        for (int b = 0; b < (n * m + 7) / 8; b++) {
+            int bits = in.get() & 0xFF;
+            for (int k2 = 0; k2 < 8; k2++)
+                if ((bits & (1 << k2)) != 0)
+                    cells[colored++] = 8 * b + k2;
+        }
+        int[] owners = new int[colored];
+        for (int c = 0; c < colored; c++)
+            owners[c] = readVarint(in);
+
+        // Next cell of each cell, and number of cells pointing to it inside its path.
+        int[] next = new int[n * m];
+        int[] inDegree = new int[n * m];
+        for (int c = 0; c < colored; c += 4) {
+            int packed = in.get() & 0xFF;
+            for (int k2 = 0; k2 < 4 && c + k2 < colored; k2++) {
+                int d = (packed >> (2 * k2)) & 3, cell = cells[c + k2];
+                if (paths[owners[c + k2]].length == 1)
+                    continue;
+                next[cell] = (cell / m + mvt[d][0]) * m + cell % m + mvt[d][1];
+                inDegree[next[cell]]++;
+            }
+        }
+
+        // The first cell of a path is the only one nobody points to, except for paths of 2 cells
+        // where both cells point to each other and the path starts from the smallest index.
+        int[] heads = new int[paths.length];
+        Arrays.fill(heads, -1);
+        for (int c = 0; c < colored; c++) {
+            int p = owners[c], cell = cells[c];
+            if (paths[p].length == 1 || (paths[p].length == 2 && heads[p] == -1)
+                    || (paths[p].length > 2 && inDegree[cell] == 0))
+                heads[p] = cell;
+        }
+        for (int p = 0; p < paths.length; p++) {
+            int cell = heads[p];
+            for (int idx = 0; idx < paths[p].length; idx++) {
+                paths[p][idx] = cell;
+                cell = next[cell];
+            }
+        }
+        return new Solution(n, m, paths);
+    }
+
+    private ByteBuffer record(int k) {
+        ByteBuffer in = buffer.duplicate();
+        in.limit(indexOffset).position((int) offsets[k]);
+        return in;
+    }
+
+    // Decodes the clues of a record, checking the dimensions before allocating.
+    private static Puzzle readPuzzle(ByteBuffer in) {
+        int m = readVarint(in), n = readVarint(in);
+        readVarint(in); // largest clue, only needed by readers sizing their buffers
+        if (n < 1 || m < 1 || (long) n * m > MAX_CELLS)
+            throw new IllegalArgumentException("Malformed record: invalid dimensions " + n + "x" + m);
+        int size = n * m;
+        boolean dense = in.get() == DENSE;
+        if (dense && size > in.remaining())
+            throw new IllegalArgumentException("Malformed record: too short for " + n + "x" + m + " values");
+        int[] values = new int[size];
+        if (dense) {
+            for (int c = 0; c < size; c++)
+                values[c] = in.get() & 0xFF;
+        } else {
+            int count = readVarint(in);
+            for (int k = 0, c = -1; k < count; k++) {
+                c += readVarint(in) + 1;
+                if (c < 0 || c >= size)
+                    throw new IllegalArgumentException("Malformed record: clue outside of the grid");
+                values[c] = readVarint(in);
+            }
+        }
+        return new Puzzle(n, m, values);
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0;; shift += 7) {
+            int b = in.get() & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+    }
+
+    /**
+     * Writes a container record by record. The index is written when closing.
+     */
+    static class Writer implements Closeable {
+        private final OutputStream out;
+        private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+        private long position = 0;
+        private long[] offsets = new long[16];
+        private int count = 0;
+
+        /**
+         * Creates a container file, replacing any existing one.
+         *
+         * @param fileName The file path of the container.
+         * @throws IOException If the file cannot be created.
+         */
+        Writer(String fileName) throws IOException {
+            out = new BufferedOutputStream(Files.newOutputStream(Paths.get(fileName)), 1 << 16);
+            writeInt(MAGIC);
+            out.write(VERSION);
+            position = 5;
+        }
+
+        /**
+         * Appends an instance to the container.
+         *
+         * @param puzzle   The instance.
+         * @param solution Its solution, or null.
+         * @throws IOException If an error occurs while writing, or if the grid exceeds MAX_CELLS.
+         */
+        void add(Puzzle puzzle, Solution solution) throws IOException {
+            if ((long) puzzle.n * puzzle.m > MAX_CELLS)
+                throw new IOException("Instance too large for a container: " + puzzle.n + "x" + puzzle.m);
+            if (count == offsets.length)
+                offsets = Arrays.copyOf(offsets, 2 * count);
+            offsets[count++] = position;
+            record.reset();
+
+            int n = puzzle.n, m = puzzle.m, max = puzzle.maxValue(), clues = 0;
+            writeVarint(record, m);
+            writeVarint(record, n);
+            writeVarint(record, max);
+            for (int v : puzzle.values)
+                if (v > 0)
+                    clues++;
+            // Sparse clues take at least 2 bytes each, dense ones 1 byte per cell.
+            if (max < 256 && n * m <= 2 * clues) {
+                record.write(DENSE);
+                for (int v : puzzle.values)
+                    record.write(v);
+            } else {
+                record.write(SPARSE);
+                writeVarint(record, clues);
+                for (int c = 0, last = -1; c < n * m; c++)
+                    if (puzzle.values[c] > 0) {
+                        writeVarint(record, c - last - 1);
+                        writeVarint(record, puzzle.values[c]);
+                        last = c;
+                    }
+            }
+
+            record.write(solution == null ? 0 : 1);
+            if (solution != null)
+                writeSolution(solution);
+
+            record.writeTo(out);
+            position += record.size();
+        }
+
+        private void writeSolution(Solution solution) {
+            int n = solution.n, m = solution.m;
+            int[] owners = solution.owners();
+            int[] next = new int[n * m];
+            writeVarint(record, solution.paths.length);
+            for (int[] path : solution.paths) {
+                writeVarint(record, path.length);
+                for (int idx = 0; idx < path.length; idx++)
+                    next[path[idx]] = idx + 1 < path.length ? path[idx + 1] : path[Math.max(0, idx - 1)];
+            }
+            for (int b = 0; b < n * m; b += 8) {
+                int bits = 0;
+                for (int k = 0; k < 8 && b + k < n * m; k++)
+                    if (owners[b + k] >= 0)
+                        bits |= 1 << k;
+                record.write(bits);
+            }
+            for (int c = 0; c < n * m; c++)
+                if (owners[c] >= 0)
+                    writeVarint(record, owners[c]);
+            int packed = 0, k = 0;
+            for (int c = 0; c < n * m; c++)
+                if (owners[c] >= 0) {
+                    packed |= direction(c, next[c], m) << (2 * k);
+                    if (++k == 4) {
+                        record.write(packed);
+                        packed = k = 0;
+                    }
+                }
+            if (k > 0)
+                record.write(packed);
+        }
+
+        // Index in mvt of the move from cell a to cell b (0 if they are the same cell).
+        private static int direction(int a, int b, int m) {
+            for (int d = 0; d < 4; d++)
+                if ((a / m + mvt[d][0]) * m + a % m + mvt[d][1] == b && Math.abs(a % m - b % m) <= 1)
+                    return d;
+            return 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            long indexOffset = position;
+            for (int k = 0; k < count; k++)
+                writeLong(offsets[k]);
+            writeLong(indexOffset);
+            writeInt(count);
+            writeInt(MAGIC);
+            out.close();
+        }
+
+        private void writeInt(int v) throws IOException {
+            for (int s = 24; s >= 0; s -= 8)
+                out.write(v >>> s);
+        }
+
+        private void writeLong(long v) throws IOException {
+            writeInt((int) (v >>> 32));
+            writeInt((int) v);
+        }
+
+        private static void writeVarint(ByteArrayOutputStream out, int value) {
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Command-line converter between the text format and the binary container.
+ *
+ * Usage:
+ * - PuzzleConverter pack container.lpx 1.txt 2.txt ...: stores the text instances in a container.
+ * - PuzzleConverter unpack container.lpx directory: writes each instance of a container
+ *   as directory/k.txt, k starting from 1.
+ */
+public class PuzzleConverter {
+
+    /**
+     * The entry point of the converter.
+     *
+     * @param args The mode, the container, then the text files or the output directory.
+     * @throws IOException If an exception occurre while reading or writing a file.
+     */
+    public static void main(String args[]) throws IOException {
+        if (args.length >= 2 && args[0].equals("pack")) {
+            try (PuzzleContainer.Writer writer = new PuzzleContainer.Writer(args[1])) {
+                for (int k = 2; k < args.length; k++)
+                    writer.add(Puzzle.readText(args[k]), null);
+            }
+            System.out.println((args.length - 2) + " instances written to " + args[1]);
+        } else if (args.length == 3 && args[0].equals("unpack")) {
+            PuzzleContainer container = PuzzleContainer.open(args[1]);
+            Files.createDirectories(Paths.get(args[2]));
+            for (int k = 0; k < container.size(); k++)
+                container.puzzle(k).writeText(Paths.get(args[2], (k + 1) + ".txt").toString());
+            System.out.println(container.size() + " instances written to " + args[2]);
+        } else
+            System.out.println("Usage: PuzzleConverter pack <container> <file.txt>... | unpack <container> <directory>");
+    }
+}
@@ -0,0 +1,264 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates solvable instances of any size: the grid is covered by random non-overlapping
+ * self-avoiding paths, and the two ends of each path get its length as clue. The length of each
+ * path is drawn from a given distribution; a walk blocked by the paths already placed stops short.
+ * Cells left out of the paths, when the coverage is below 1, are empty.
+ * Instance k of a corpus only depends on the seed and on k, whatever the number of threads.
+ */
+public class PuzzleGenerator {
+    // Number of instances generated in parallel before being written, in order.
+    static final int CHUNK = 1024;
+
+    // Number of tries for an instance with a unique solution before giving up.
+    static final int MAX_ATTEMPTS = 1000;
+
+    // Dimensions of the grid.
+    private final int n, m;
+
+    // Cumulative weights of the path lengths, from length 1.
+    private final double[] cumulative;
+
+    // Keeps only the instances with a unique solution.
+    private boolean uniqueOnly = false;
+
+    // Fraction of the cells covered by paths, the other ones being left empty.
+    private double coverage = 1;
+
+    // Statistics: instances rejected as not unique.
+    private final AtomicLong rejected = new AtomicLong();
+
+    // Possible moves in the grid, in the order of BaseSolver: right, down, left, and up.
+    private static final int mvt[][] = { { 0, 1 }, { 1, 0 }, { 0, -1 }, { -1, 0 } };
+
+    /**
+     * Constructs a generator.
+     *
+     * @param n             The number of rows.
+     * @param m             The number of columns.
+     * @param lengthWeights The weight of each path length, index 0 being unused; lengths go up to 63.
+     */
+    PuzzleGenerator(int n, int m, double[] lengthWeights) {
+        if (lengthWeights.length < 2 || lengthWeights.length > 64)
+            throw new IllegalArgumentException("Path lengths must be between 1 and 63");
+        this.n = n;
+        this.m = m;
+        this.cumulative = new double[lengthWeights.length - 1];
+        double total = 0;
+        for (int l = 1; l < lengthWeights.length; l++)
+            cumulative[l - 1] = total += lengthWeights[l];
+        if (total <= 0)
+            throw new IllegalArgumentException("No path length has a positive weight");
+    }
+
+    /**
+     * Returns the weights of a uniform distribution of the path lengths.
+     *
+     * @param maxLength The longest path, at most 63.
+     * @return The weights, 1 for each length from 1 to maxLength.
+     */
+    static double[] uniformLengths(int maxLength) {
+        double[] weights = new double[maxLength + 1];
+        for (int l = 1; l <= maxLength; l++)
+            weights[l] = 1;
+        return weights;
+    }
+
+    /**
+     * Keeps only the instances with a unique solution: an instance with several solutions
+     * is drawn again from the next seed of its sequence.
+     *
+     * @param uniqueOnly true to keep only the unique instances.
+     */
+    void setUniqueOnly(boolean uniqueOnly) {
+        this.uniqueOnly = uniqueOnly;
+    }
+
+    /**
+     * Sets the fraction of the cells covered by paths: no path is started once it is reached,
+     * so that a lower coverage gives fewer clues per cell.
+     *
+     * @param coverage The fraction, between 0 and 1.
+     */
+    void setCoverage(double coverage) {
+        this.coverage = coverage;
+    }
+
+    /**
+     * Generates instance k of the corpus of a seed.
+     *
+     * @param seed The seed of the corpus.
+     * @param k    The index of the instance.
+     * @return The solution of the instance, from which the instance is built by puzzleOf.
+     */
+    Solution generate(long seed, int k) {
+        SplittableRandom random = new SplittableRandom(mix(seed ^ mix(k + 1)));
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            Solution solution = cover(random);
+            if (!uniqueOnly || SolutionCounter.count(puzzleOf(solution), 2, 1) == 1)
+                return solution;
+            rejected.incrementAndGet();
+        }
+        throw new IllegalStateException("No unique instance found after " + MAX_ATTEMPTS + " attempts");
+    }
+
+    /**
+     * Builds the instance solved by a solution: the ends of each path hold its length.
+     *
+     * @param solution The solution.
+     * @return The instance.
+     */
+    static Puzzle puzzleOf(Solution solution) {
+        int[] values = new int[solution.n * solution.m];
+        for (int[] path : solution.paths) {
+            values[path[0]] = path.length;
+            values[path[path.length - 1]] = path.length;
+        }
+        return new Puzzle(solution.n, solution.m, values);
+    }
+
+    // Covers the grid with paths, started from the free cells in a random order.
+    private Solution cover(SplittableRandom random) {
+        int[] order = new int[n * m];
+        for (int c = 0; c < order.length; c++) {
+            int r = random.nextInt(c + 1);
+            order[c] = order[r];
+            order[r] = c;
+        }
+        boolean[] used = new boolean[n * m];
+        int[] path = new int[cumulative.length];
+        int[] free = new int[4];
+        List<int[]> paths = new ArrayList<int[]>();
+        int covered = 0;
+        for (int start : order) {
+            if (covered >= coverage * n * m)
+                break;
+            if (used[start])
+                continue;
+            int target = drawLength(random), length = 0;
+            for (int c = start; c >= 0 && length < target;) {
+                used[c] = true;
+                path[length++] = c;
+                int count = 0;
+                for (int[] d : mvt) {
+                    int i = c / m + d[0], j = c % m + d[1];
+                    if (i >= 0 && i < n && j >= 0 && j < m && !used[i * m + j])
+                        free[count++] = i * m + j;
+                }
+                c = count == 0 ? -1 : free[random.nextInt(count)];
+            }
+            covered += length;
+            int[] p = new int[length];
+            System.arraycopy(path, 0, p, 0, length);
+            paths.add(p);
+        }
+        return new Solution(n, m, paths.toArray(new int[paths.size()][]));
+    }
+
+    private int drawLength(SplittableRandom random) {
+        double x = random.nextDouble() * cumulative[cumulative.length - 1];
+        int l = 0;
+        while (cumulative[l] <= x)
+            l++;
+        return l + 1;
+    }
+
+    // The splitmix64 finalizer, deriving independent seeds for the instances.
+    private static long mix(long x) {
+        x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+        x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+        return x ^ (x >>> 31);
+    }
+
+    /**
+     * Generates a corpus in parallel, and writes it either as a container (with the solutions)
+     * when the output ends with .lpx, or as a directory of text files 1.txt, 2.txt, ...
+     *
+     * @param output  The container or the directory.
+     * @param count   The number of instances.
+     * @param seed    The seed of the corpus.
+     * @param threads The number of threads.
+     * @throws IOException If an error occurs while writing.
+     */
+    void write(String output, int count, long seed, int threads) throws IOException {
+        boolean container = output.endsWith(".lpx");
+        if (!container)
+            Files.createDirectories(Paths.get(output));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (PuzzleContainer.Writer writer = container ? new PuzzleContainer.Writer(output) : null) {
+            Solution[] chunk = new Solution[CHUNK];
+            for (int first = 0; first < count; first += CHUNK) {
+                int size = Math.min(CHUNK, count - first), base = first;
+                AtomicInteger next = new AtomicInteger();
+                List<Future<?>> workers = new ArrayList<Future<?>>();
+                for (int w = 0; w < threads; w++)
+                    workers.add(pool.submit(() -> {
+                        for (int k = next.getAndIncrement(); k < size; k = next.getAndIncrement())
+                            chunk[k] = generate(seed, base + k);
+                    }));
+                for (Future<?> worker : workers)
+                    worker.get();
+                for (int k = 0; k < size; k++)
+                    if (container)
+                        writer.add(puzzleOf(chunk[k]), chunk[k]);
+                    else
+                        puzzleOf(chunk[k]).writeText(Paths.get(output, (first + k + 1) + ".txt").toString());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Generates a corpus from the command line.
+     *
+     * @param args The output, the number of instances, the rows and columns, then optionally the longest
+     *             path (12 by default), the seed (0), the number of threads, and --unique.
+     * @throws IOException If an error occurs while writing.
+     */
+    public static void main(String args[]) throws IOException {
+        List<String> params = new ArrayList<String>();
+        boolean unique = false;
+        for (String arg : args)
+            if (arg.equals("--unique"))
+                unique = true;
+            else
+                params.add(arg);
+        if (params.size() < 4 || params.size() > 7) {
+            System.out.println("Usage: PuzzleGenerator <directory | container.lpx> <count> <rows> <columns>"
+                    + " [max length] [seed] [threads] [--unique]");
+            return;
+        }
+        int count = Integer.parseInt(params.get(1));
+        int n = Integer.parseInt(params.get(2)), m = Integer.parseInt(params.get(3));
+        int maxLength = params.size() > 4 ? Integer.parseInt(params.get(4)) : 12;
+        long seed = params.size() > 5 ? Long.parseLong(params.get(5)) : 0;
+        int threads = params.size() > 6 ? Integer.parseInt(params.get(6)) : Runtime.getRuntime().availableProcessors();
+
+        PuzzleGenerator generator = new PuzzleGenerator(n, m, uniformLengths(maxLength));
+        generator.setUniqueOnly(unique);
+        long start = System.nanoTime();
+        generator.write(params.get(0), count, seed, threads);
+        long elapsed = System.nanoTime() - start;
+        System.out.println(count + " instances written to " + params.get(0) + " in " + elapsed / 1000000 + " ms ("
+                + String.format("%.0f", count * 1e9 / elapsed) + " per second), " + generator.rejected.get()
+                + " rejected as not unique");
+    }
+}
@@ -0,0 +1,124 @@
+import java.util.Arrays;
+
+/**
+ * Excludes the empty cells out of reach of every pair of clues still without path. A clue of n
+ * and its partner are joined by n - 1 moves, so a cell is on their path only if its distances to
+ * both, through the cells a path can take, add up to at most n - 1; the distance between the clues
+ * must also have the parity of n - 1, as each move changes the parity of i + j. A clue left without
+ * any partner makes the instance unsatisfiable.
+ *
+ * The distances are found by breadth-first search around each clue, within its value, so that a
+ * call costs the area around the clues rather than the whole grid times the number of pairs.
+ */
+public class ReachRule implements DeductionRule {
+    // Distances from the clue and from its partner, valid where the stamp of the search is found.
+    private int[] fromClue = new int[0], fromPartner = new int[0], seenClue = new int[0], seenPartner = new int[0];
+
+    // Cells reached by each search, in order, and cells on a possible path (stamp of the call).
+    private int[] orderClue = new int[0], orderPartner = new int[0], alive = new int[0];
+
+    // Clues found with a possible partner.
+    private boolean[] paired = new boolean[0];
+
+    private int stamp = 0;
+
+    @Override
+    public String name() {
+        return "reach";
+    }
+
+    @Override
+    public int apply(ImprovedCombinationExclusionSolver solver) {
+        int n = solver.n, m = solver.m;
+        if (alive.length < n * m || stamp > Integer.MAX_VALUE - 4 * n * m) {
+            fromClue = new int[n * m];
+            fromPartner = new int[n * m];
+            seenClue = new int[n * m];
+            seenPartner = new int[n * m];
+            orderClue = new int[n * m];
+            orderPartner = new int[n * m];
+            alive = new int[n * m];
+            stamp = 0;
+        }
+        if (paired.length < solver.clues().size())
+            paired = new boolean[solver.clues().size()];
+        Arrays.fill(paired, false);
+        int call = ++stamp;
+
+        for (Cell clue : solver.clues()) {
+            if (clue.value < 2 || solver.resolved(clue))
+                continue;
+            // On a large grid, a call takes longer than the budget of a short solve.
+            if (solver.stopped())
+                return 0;
+            int limit = clue.value - 1, mark = ++stamp;
+            int reached = spread(solver, clue, clue.position, limit, fromClue, seenClue, mark, orderClue);
+            for (int k = 1; k < reached; k++) {
+                int c = orderClue[k];
+                Cell partner = solver.configuration[c / m][c % m];
+                if (partner.value != clue.value || (limit - fromClue[c]) % 2 != 0)
+                    continue;
+                // Pairs of two open clues are handled from the first one.
+                if (!solver.resolved(partner) && partner.position < clue.position)
+                    continue;
+                paired[clue.position] = paired[partner.position] = true;
+                int other = ++stamp;
+                spread(solver, partner, clue.position, limit, fromPartner, seenPartner, other, orderPartner);
+                for (int q = 1; q < reached; q++) {
+                    int x = orderClue[q];
+                    if (seenPartner[x] == other && fromClue[x] + fromPartner[x] <= limit)
+                        alive[x] = call;
+                }
+            }
+        }
+        for (Cell clue : solver.clues())
+            if (clue.value > 1 && !solver.resolved(clue) && !paired[clue.position]) {
+                solver.fail();
+                return 0;
+            }
+
+        int excluded = 0;
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < m; j++) {
+                Cell c = solver.configuration[i][j];
+                if (c.value == 0 && c.state == Cell.State.NotColored && alive[i * m + j] != call) {
+                    solver.exclude(c);
+                    excluded++;
+                }
+            }
+        return excluded;
+    }
+
+    /**
+     * Finds the distances from a cell to the cells within a limit, going through the free empty
+     * cells and the cells already on the path of the clue. Clues of the value are reached, but
+     * not gone through.
+     *
+     * @return The number of cells reached, listed in order.
+     */
+    private static int spread(ImprovedCombinationExclusionSolver solver, Cell from, int owner, int limit,
+            int[] dist, int[] seen, int mark, int[] order) {
+        int n = solver.n, m = solver.m, value = solver.clues().get(owner).value, reached = 1;
+        order[0] = from.i * m + from.j;
+        dist[order[0]] = 0;
+        seen[order[0]] = mark;
+        for (int head = 0; head < reached; head++) {
+            int c = order[head], i = c / m, j = c % m;
+            if (dist[c] == limit || (head > 0 && solver.configuration[i][j].value > 0))
+                continue;
+            for (int k = 0; k < 4; k++) {
+                int ni = i + solver.mvt[k][0], nj = j + solver.mvt[k][1], nc = ni * m + nj;
+                if (ni < 0 || ni >= n || nj < 0 || nj >= m || seen[nc] == mark)
+                    continue;
+                Cell next = solver.configuration[ni][nj];
+                if (next.state == Cell.State.NotColored ? next.value == 0 || next.value == value
+                        : next.state == Cell.State.Colored && next.b1 == owner) {
+                    seen[nc] = mark;
+                    dist[nc] = dist[c] + 1;
+                    order[reached++] = nc;
+                }
+            }
+        }
+        return reached;
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Lean replacement of TwoDSegmentTree for very large grids, answering the same queries:
+ * is there a clue of a given number (below 64) within a rectangle of the grid.
+ * The grid is cut into 8x8 regions, each summarized by the set of numbers of its clues;
+ * regions fully inside the rectangle are answered by their summary, the others by scanning
+ * their cells. It costs 2 bits per cell, against 32 bytes per cell for the segment tree.
+ */
+public class RegionOracle implements ClueOracle {
+    // Side of a region is 1 << SHIFT.
+    private static final int SHIFT = 3, SIDE = 1 << SHIFT;
+
+    // Dimensions of the grid, and number of regions per column and per row.
+    private final int n, m, rows, cols;
+
+    // Clue of each cell, shared with the solver.
+    private final byte[] values;
+
+    // Cells whose clue is in the oracle, 1 bit per cell.
+    private final long[] active;
+
+    // Numbers of the clues in the oracle, 1 bit per number, for each region.
+    private final long[] masks;
+
+    /**
+     * Constructs an empty oracle.
+     *
+     * @param n      The number of rows in the grid.
+     * @param m      The number of columns in the grid.
+     * @param values The clue of each cell in row-major order, 0 if empty.
+     */
+    RegionOracle(int n, int m, byte[] values) {
+        this.n = n;
+        this.m = m;
+        this.values = values;
+        rows = (n + SIDE - 1) >> SHIFT;
+        cols = (m + SIDE - 1) >> SHIFT;
+        active = new long[(n * m + 63) >> 6];
+        masks = new long[rows * cols];
+    }
+
+    /**
+     * Inserts the clue of a cell if absent, or removes it if present.
+     *
+     * @param x     Row index of the cell.
+     * @param y     Column index of the cell.
+     * @param value The clue of the cell minus 1.
+     */
+    public void change(int x, int y, int value) {
+        int c = x * m + y;
+        active[c >> 6] ^= 1L << c;
+
+        // Summary of the region, from its cells.
+        int r = x >> SHIFT, q = y >> SHIFT;
+        long mask = 0;
+        for (int i = r << SHIFT; i < Math.min(n, (r + 1) << SHIFT); i++)
+            for (int j = q << SHIFT; j < Math.min(m, (q + 1) << SHIFT); j++)
+                if ((active[(i * m + j) >> 6] & 1L << (i * m + j)) != 0)
+                    mask |= 1L << (values[i * m + j] - 1);
+        masks[r * cols + q] = mask;
+    }
+
+    /**
+     * Checks for the presence of a clue within a rectangle.
+     *
+     * @param x1    Row index of the top-left corner.
+     * @param y1    Column index of the top-left corner.
+     * @param x2    Row index of the bottom-right corner.
+     * @param y2    Column index of the bottom-right corner.
+     * @param value The clue minus 1.
+     * @return True if the clue is found within the rectangle, False otherwise.
+     */
+    public boolean query(int x1, int y1, int x2, int y2, int value) {
+        long bit = 1L << value;
+        for (int r = x1 >> SHIFT; r <= x2 >> SHIFT; r++)
+            for (int q = y1 >> SHIFT; q <= y2 >> SHIFT; q++) {
+                if ((masks[r * cols + q] & bit) == 0)
+                    continue;
+                int i1 = Math.max(x1, r << SHIFT), i2 = Math.min(x2, ((r + 1) << SHIFT) - 1);
+                int j1 = Math.max(y1, q << SHIFT), j2 = Math.min(y2, ((q + 1) << SHIFT) - 1);
+                if (i1 == r << SHIFT && i2 >= Math.min(n, (r + 1) << SHIFT) - 1 && j1 == q << SHIFT
+                        && j2 >= Math.min(m, (q + 1) << SHIFT) - 1)
+                    return true;
+                for (int i = i1; i <= i2; i++)
+                    for (int j = j1; j <= j2; j++)
+                        if (values[i * m + j] == value + 1 && (active[(i * m + j) >> 6] & 1L << (i * m + j)) != 0)
+                            return true;
+            }
+        return false;
+    }
+}
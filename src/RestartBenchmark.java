@@ -0,0 +1,42 @@
+/**
+ * Measures the tail of the solve times of the improved combination exclusion solver, without
+ * restarts and with the restart schedules given (see RestartSchedule), on the generated instances
+ * of TailBenchmark. Prints the 50th, 90th, 99th percentiles and the largest time, the mean,
+ * and the number of instances timed out, for each schedule.
+ *
+ * Usage: RestartBenchmark [instances, 300 by default] [timeout in ms, 5000 by default]
+ *                         [schedules: none, lubyU or geometricF, none luby10000 geometric10000 by default]
+ */
+public class RestartBenchmark {
+
+    /**
+     * Runs the comparison.
+     *
+     * @param args The number of instances, the timeout of a solve, then the schedules.
+     */
+    public static void main(String args[]) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        long timeout = args.length > 1 ? Long.parseLong(args[1]) : 5000;
+        String[] schedules = args.length > 2 ? java.util.Arrays.copyOfRange(args, 2, args.length)
+                : new String[] { "none", "luby10000", "geometric10000" };
+
+        Puzzle[] puzzles = TailBenchmark.corpus(count);
+        TailBenchmark.warmUp(puzzles);
+
+        for (String name : schedules) {
+            RestartSchedule schedule = name.startsWith("luby") ? RestartSchedule.luby(Long.parseLong(name.substring(4)))
+                    : name.startsWith("geometric") ? RestartSchedule.geometric(Long.parseLong(name.substring(9)), 1.5)
+                    : null;
+            TailBenchmark.Times times = new TailBenchmark.Times();
+            long runs = 0;
+            for (int k = 0; k < count; k++) {
+                ImprovedCombinationExclusionSolver solver = new ImprovedCombinationExclusionSolver(puzzles[k], true);
+                solver.setBudget(new SearchBudget(timeout, SearchBudget.UNLIMITED, SearchBudget.UNLIMITED));
+                solver.enableRestarts(schedule, k);
+                times.record(solver.solve());
+                runs += solver.runs();
+            }
+            System.out.println(String.format("%-15s %s, %d runs", name, times, runs));
+        }
+    }
+}
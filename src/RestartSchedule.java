@@ -0,0 +1,70 @@
+/**
+ * Node limits of the successive runs of a search with restarts: the search starts over, in another
+ * random order, once a run visits its number of nodes without solving the instance. The limits grow,
+ * so that the search stays complete: a run ending below its limit has explored the whole tree.
+ *
+ * Luby limits (unit times 1, 1, 2, 1, 1, 2, 4, 1, ...) are within a constant factor of the best fixed
+ * limit for any distribution of the solve times; geometric limits (first, first * factor, ...) give
+ * longer runs sooner.
+ */
+public class RestartSchedule {
+    // Limit of the first run, or unit of the Luby sequence.
+    private final long first;
+
+    // Growth of the limits from a run to the next, 0 for the Luby sequence.
+    private final double factor;
+
+    private RestartSchedule(long first, double factor) {
+        this.first = first;
+        this.factor = factor;
+    }
+
+    /**
+     * Creates Luby limits.
+     *
+     * @param unit The number of nodes of the shortest runs.
+     * @return The schedule.
+     */
+    static RestartSchedule luby(long unit) {
+        return new RestartSchedule(unit, 0);
+    }
+
+    /**
+     * Creates geometric limits.
+     *
+     * @param first  The number of nodes of the first run.
+     * @param factor The growth of the limits, above 1.
+     * @return The schedule.
+     */
+    static RestartSchedule geometric(long first, double factor) {
+        if (factor <= 1)
+            throw new IllegalArgumentException("The limits must grow: " + factor);
+        return new RestartSchedule(first, factor);
+    }
+
+    /**
+     * Returns the node limit of a run.
+     *
+     * @param run The run, from 1.
+     * @return The number of nodes the run may visit, SearchBudget.UNLIMITED once too large.
+     */
+    long limit(int run) {
+        double limit = factor == 0 ? (double) first * luby(run) : first * Math.pow(factor, run - 1);
+        return limit >= SearchBudget.UNLIMITED ? SearchBudget.UNLIMITED : (long) limit;
+    }
+
+    // Term of the Luby sequence: 2^(k-1) at i = 2^k - 1, and the sequence again after each of these.
+    private static long luby(int i) {
+        while (true) {
+            int k = 32 - Integer.numberOfLeadingZeros(i);
+            if (i == (1 << k) - 1)
+                return 1L << (k - 1);
+            i -= (1 << (k - 1)) - 1;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return factor == 0 ? "luby(" + first + ")" : "geometric(" + first + ", " + factor + ")";
+    }
+}
@@ -0,0 +1,64 @@
+import java.io.IOException;
+
+/**
+ * Measures the search each deduction rule removes (see RuleEngine): solves every instance with
+ * the improved combination exclusion solver with all the rules, without each one in turn, and
+ * without any, and prints the nodes and the time of each run, then the counters of the rules.
+ * Each run is repeated, and the fastest one kept, so that the times are of compiled code.
+ *
+ * Usage: RuleBenchmark [instance files, data/1.txt to data/7.txt by default]
+ */
+public class RuleBenchmark {
+    // Rules, all run by default.
+    private static final String[] RULES = { "one", "pair", "dead-end", "reach" };
+
+    // Solves an instance with the given rules, keeping the fastest of a few runs.
+    private static SolveResult solve(Puzzle puzzle, RuleEngine rules) {
+        SolveResult best = null;
+        for (int round = 0; round < 5; round++) {
+            ImprovedCombinationExclusionSolver solver = new ImprovedCombinationExclusionSolver(puzzle, true);
+            solver.setRules(rules);
+            SolveResult result = solver.solve();
+            if (best == null || result.elapsedNanos < best.elapsedNanos)
+                best = result;
+        }
+        return best;
+    }
+
+    // Engine of all the rules but one, or of all of them if skipped is null.
+    private static RuleEngine without(String skipped) {
+        DeductionRule[] rules = new DeductionRule[skipped == null ? RULES.length : RULES.length - 1];
+        int r = 0;
+        for (String name : RULES)
+            if (!name.equals(skipped))
+                rules[r++] = RuleEngine.rule(name);
+        return new RuleEngine(rules);
+    }
+
+    /**
+     * Runs the comparison.
+     *
+     * @param args The instance files.
+     * @throws IOException If an instance cannot be read.
+     */
+    public static void main(String args[]) throws IOException {
+        if (args.length == 0)
+            args = new String[] { "data/1.txt", "data/2.txt", "data/3.txt", "data/4.txt", "data/5.txt",
+                    "data/6.txt", "data/7.txt" };
+        RuleEngine all = without(null);
+        for (String file : args) {
+            Puzzle puzzle = Puzzle.readText(file);
+            StringBuilder line = new StringBuilder(file);
+            SolveResult result = solve(puzzle, all);
+            line.append(String.format("  all: %d nodes %.1f ms", result.nodes, result.elapsedNanos / 1e6));
+            for (String name : RULES) {
+                result = solve(puzzle, without(name));
+                line.append(String.format("  no %s: %d", name, result.nodes));
+            }
+            result = solve(puzzle, new RuleEngine());
+            line.append(String.format("  none: %d nodes %.1f ms", result.nodes, result.elapsedNanos / 1e6));
+            System.out.println(line);
+        }
+        System.out.print(all.report());
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * Runs deduction rules over the grid of a solver, in a loop until none of them deduces anything,
+ * and counts what each rule deduces and the time it takes.
+ *
+ * The rules are selected by the logipix.rules property, a list of names separated by commas
+ * (one, pair, dead-end and reach by default, none for no rule).
+ */
+public class RuleEngine {
+    // Rules in the order they are called.
+    private final DeductionRule[] rules;
+
+    // Calls of each rule, cells colored or excluded by it, and time spent in it.
+    private final long[] calls, deductions, nanos;
+
+    /**
+     * Constructs an engine running the given rules.
+     *
+     * @param rules The rules, in the order they are called.
+     */
+    RuleEngine(DeductionRule... rules) {
+        this.rules = rules;
+        calls = new long[rules.length];
+        deductions = new long[rules.length];
+        nanos = new long[rules.length];
+    }
+
+    /**
+     * Creates the engine of the rules selected by the logipix.rules property.
+     *
+     * @return A new engine, owned by one solver.
+     */
+    static RuleEngine create() {
+        String names = System.getProperty("logipix.rules", "one,pair,dead-end,reach");
+        if (names.isEmpty() || names.equals("none"))
+            return new RuleEngine();
+        String[] list = names.split(",");
+        DeductionRule[] rules = new DeductionRule[list.length];
+        for (int k = 0; k < list.length; k++)
+            rules[k] = rule(list[k].trim());
+        return new RuleEngine(rules);
+    }
+
+    /**
+     * Creates a rule from its name.
+     *
+     * @param name The name of the rule.
+     * @return A new rule.
+     * @throws IllegalArgumentException If no rule has this name.
+     */
+    static DeductionRule rule(String name) {
+        switch (name) {
+            case "one":
+                return new OneClueRule();
+            case "pair":
+                return new TwoClueRule();
+            case "dead-end":
+                return new DeadEndRule();
+            case "reach":
+                return new ReachRule();
+            default:
+                throw new IllegalArgumentException("Unknown deduction rule: " + name);
+        }
+    }
+
+    /**
+     * Applies the rules until none of them deduces anything, the instance is found unsatisfiable,
+     * or the budget of the solve is exceeded.
+     *
+     * @param solver The solver, during its propagation.
+     * @return The number of cells colored or excluded.
+     */
+    int run(ImprovedCombinationExclusionSolver solver) {
+        int total = 0, found;
+        do {
+            found = 0;
+            for (int r = 0; r < rules.length && !solver.stopped(); r++) {
+                long start = System.nanoTime();
+                int deduced = rules[r].apply(solver);
+                nanos[r] += System.nanoTime() - start;
+                calls[r]++;
+                deductions[r] += deduced;
+                found += deduced;
+            }
+            total += found;
+        } while (found > 0 && !solver.stopped());
+        return total;
+    }
+
+    /**
+     * Returns the counters of the rules, one line per rule.
+     *
+     * @return The name, the calls, the cells colored or excluded and the time of each rule.
+     */
+    String report() {
+        StringBuilder text = new StringBuilder();
+        for (int r = 0; r < rules.length; r++)
+            text.append(String.format("%-9s %6d calls %9d cells %9.3f ms%n", rules[r].name(), calls[r],
+                    deductions[r], nanos[r] / 1e6));
+        return text.toString();
+    }
+
+    /**
+     * Returns the number of cells colored or excluded by a rule since the engine was created.
+     *
+     * @param name The name of the rule.
+     * @return The number of cells, 0 if the engine does not run the rule.
+     */
+    long deductions(String name) {
+        for (int r = 0; r < rules.length; r++)
+            if (rules[r].name().equals(name))
+                return deductions[r];
+        return 0;
+    }
+}
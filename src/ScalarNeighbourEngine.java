@@ -0,0 +1,23 @@
+/**
+ * Checks the four neighbours of a cell one after the other, as the loops over mvt of the other solvers.
+ */
+public class ScalarNeighbourEngine implements NeighbourEngine {
+
+    @Override
+    public int freeMoves(long[] states, byte[] values, int n, int m, int c, boolean end) {
+        int i = c / m, j = c % m, moves = 0;
+        if (j + 1 < m && free(states, values, c + 1, end))
+            moves |= 1;
+        if (i + 1 < n && free(states, values, c + m, end))
+            moves |= 2;
+        if (j > 0 && free(states, values, c - 1, end))
+            moves |= 4;
+        if (i > 0 && free(states, values, c - m, end))
+            moves |= 8;
+        return moves;
+    }
+
+    private static boolean free(long[] states, byte[] values, int c, boolean end) {
+        return (states[c >> 5] >>> ((c & 31) << 1) & 3) == 0 && (end || values[c] == 0);
+    }
+}
@@ -0,0 +1,275 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Measures how the solvers scale: generated instances are swept over the grid size, the coverage
+ * of the grid by paths (hence the clue density) and the longest path (hence the largest clue).
+ * Every solver runs headless on every instance, one after the other, within a time budget.
+ * For each run, the time, the nodes, the peak heap usage and the GC time are written to CSV and/or JSON.
+ * Given the CSV of a previous run as baseline, the slower runs are reported as regressions.
+ *
+ * Usage: ScalingBenchmark [--sizes 20,40,80] [--coverages 1] [--lengths 12]
+ *        [--solvers naive,ces,ices,ices-flat,compact] [--instances 3] [--seed 1] [--timeout 10000] [--repeat 1]
+ *        [--csv file] [--json file] [--baseline file] [--threshold 1.25]
+ * The values shown are the defaults; every solver runs by default.
+ */
+public class ScalingBenchmark {
+    private static final String HEADER = "solver,rows,columns,coverage,max_length,instance,clues,status,time_ms,nodes,"
+            + "peak_heap_mb,gc_ms,gc_count";
+
+    // Options of the command line, each followed by its value.
+    private static final List<String> OPTIONS = Arrays.asList("sizes", "coverages", "lengths", "solvers", "instances",
+            "seed", "timeout", "repeat", "csv", "json", "baseline", "threshold");
+
+    // Solvers of the benchmark, by name.
+    private static final Map<String, Function<Puzzle, BaseSolver>> SOLVERS = new LinkedHashMap<String, Function<Puzzle, BaseSolver>>();
+    static {
+        SOLVERS.put("naive", puzzle -> new BacktrackingNaiveSolver(puzzle, true));
+        SOLVERS.put("ces", puzzle -> new CombinationExclusionSolver(puzzle, true));
+        SOLVERS.put("ices", puzzle -> new ImprovedCombinationExclusionSolver(puzzle, true));
+        SOLVERS.put("ices-flat", puzzle -> new ImprovedCombinationExclusionSolver(puzzle, true, FlatSegmentTree::new));
+        SOLVERS.put("compact", puzzle -> new CompactSolver(puzzle));
+    }
+
+    /**
+     * Measures of a run.
+     */
+    static class Run {
+        String solver, status;
+        int rows, columns, maxLength, instance, clues;
+        double coverage, timeMs, peakHeapMb;
+        long nodes, gcMs, gcCount;
+
+        // Identifies the point and instance of the run, to compare with a baseline.
+        String key() {
+            return solver + "," + rows + "," + columns + "," + coverage + "," + maxLength + "," + instance;
+        }
+
+        String toCsv() {
+            return key() + "," + clues + "," + status + "," + String.format("%.3f", timeMs) + "," + nodes + ","
+                    + String.format("%.1f", peakHeapMb) + "," + gcMs + "," + gcCount;
+        }
+
+        String toJson() {
+            return "{\"solver\": \"" + solver + "\", \"rows\": " + rows + ", \"columns\": " + columns + ", \"coverage\": "
+                    + coverage + ", \"max_length\": " + maxLength + ", \"instance\": " + instance + ", \"clues\": "
+                    + clues + ", \"status\": \"" + status + "\", \"time_ms\": " + String.format("%.3f", timeMs)
+                    + ", \"nodes\": " + nodes + ", \"peak_heap_mb\": " + String.format("%.1f", peakHeapMb)
+                    + ", \"gc_ms\": " + gcMs + ", \"gc_count\": " + gcCount + "}";
+        }
+
+        static Run fromCsv(String line) {
+            String[] f = line.split(",");
+            Run run = new Run();
+            run.solver = f[0];
+            run.rows = Integer.parseInt(f[1]);
+            run.columns = Integer.parseInt(f[2]);
+            run.coverage = Double.parseDouble(f[3]);
+            run.maxLength = Integer.parseInt(f[4]);
+            run.instance = Integer.parseInt(f[5]);
+            run.clues = Integer.parseInt(f[6]);
+            run.status = f[7];
+            run.timeMs = Double.parseDouble(f[8]);
+            run.nodes = Long.parseLong(f[9]);
+            run.peakHeapMb = Double.parseDouble(f[10]);
+            run.gcMs = Long.parseLong(f[11]);
+            run.gcCount = Long.parseLong(f[12]);
+            return run;
+        }
+    }
+
+    /**
+     * Runs a solver on an instance, measuring the heap peak and the GC activity during the solve.
+     *
+     * @param factory The solver to run.
+     * @param puzzle  The instance.
+     * @param timeout The time budget in milliseconds.
+     * @return The measures, the fields describing the point being left to the caller.
+     */
+    static Run measure(Function<Puzzle, BaseSolver> factory, Puzzle puzzle, long timeout) {
+        System.gc();
+        List<MemoryPoolMXBean> heap = new ArrayList<MemoryPoolMXBean>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heap.add(pool);
+            }
+        long gcMs = 0, gcCount = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcMs -= gc.getCollectionTime();
+            gcCount -= gc.getCollectionCount();
+        }
+
+        BaseSolver solver = factory.apply(puzzle);
+        solver.setBudget(new SearchBudget(timeout, SearchBudget.UNLIMITED, SearchBudget.UNLIMITED));
+        long start = System.nanoTime();
+        SolveResult result = solver.solve();
+        long elapsed = System.nanoTime() - start;
+
+        Run run = new Run();
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcMs += gc.getCollectionTime();
+            gcCount += gc.getCollectionCount();
+        }
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heap)
+            peak += pool.getPeakUsage().getUsed();
+        run.status = result.status.toString();
+        run.timeMs = elapsed / 1e6;
+        run.nodes = result.nodes;
+        run.peakHeapMb = peak / (1024. * 1024.);
+        run.gcMs = gcMs;
+        run.gcCount = gcCount;
+        return run;
+    }
+
+    /**
+     * Compares runs with a baseline: a run is a regression if it is no longer solved while the baseline was,
+     * or if it is slower than threshold times the baseline (and by more than a millisecond), or if it visits
+     * more than threshold times the nodes of the baseline.
+     *
+     * @param runs      The runs.
+     * @param baseline  The runs of the baseline.
+     * @param threshold The tolerated slowdown ratio.
+     * @return The number of regressions, each one being printed.
+     */
+    static int compare(List<Run> runs, List<Run> baseline, double threshold) {
+        Map<String, Run> before = new HashMap<String, Run>();
+        for (Run run : baseline)
+            before.put(run.key(), run);
+        int regressions = 0, compared = 0;
+        double logRatios = 0;
+        for (Run run : runs) {
+            Run old = before.get(run.key());
+            if (old == null)
+                continue;
+            compared++;
+            logRatios += Math.log(Math.max(run.timeMs, 0.001) / Math.max(old.timeMs, 0.001));
+            boolean lost = old.status.equals("Solved") && !run.status.equals("Solved");
+            boolean slower = run.timeMs > threshold * old.timeMs && run.timeMs - old.timeMs > 1;
+            // Node counts do not depend on the load of the machine: a solved run visiting more nodes regressed.
+            boolean larger = run.status.equals("Solved") && old.status.equals("Solved") && run.nodes > threshold * old.nodes;
+            if (lost || slower || larger) {
+                regressions++;
+                System.out.println("Regression " + run.key() + ": " + old.status + " in "
+                        + String.format("%.1f", old.timeMs) + " ms, " + old.nodes + " nodes -> " + run.status + " in "
+                        + String.format("%.1f", run.timeMs) + " ms, " + run.nodes + " nodes");
+            }
+        }
+        System.out.println(compared + " runs compared with the baseline, geometric mean time ratio "
+                + String.format("%.3f", compared == 0 ? 1 : Math.exp(logRatios / compared)) + ", " + regressions
+                + " regression(s)");
+        return regressions;
+    }
+
+    /**
+     * Runs the sweep.
+     *
+     * @param args The options, see the class description.
+     * @throws IOException If a file cannot be read or written.
+     */
+    public static void main(String args[]) throws IOException {
+        Map<String, String> options = new HashMap<String, String>();
+        for (int k = 0; k < args.length; k += 2) {
+            if (!args[k].startsWith("--") || !OPTIONS.contains(args[k].substring(2))) {
+                System.out.println("Unknown argument " + args[k]);
+                return;
+            }
+            if (k + 1 == args.length) {
+                System.out.println("Missing value of option " + args[k]);
+                return;
+            }
+            options.put(args[k].substring(2), args[k + 1]);
+        }
+        String[] sizes = options.getOrDefault("sizes", "20,40,80").split(",");
+        String[] coverages = options.getOrDefault("coverages", "1").split(",");
+        String[] lengths = options.getOrDefault("lengths", "12").split(",");
+        String[] solvers = options.getOrDefault("solvers", String.join(",", SOLVERS.keySet())).split(",");
+        int instances = Integer.parseInt(options.getOrDefault("instances", "3"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        long timeout = Long.parseLong(options.getOrDefault("timeout", "10000"));
+        int repeat = Integer.parseInt(options.getOrDefault("repeat", "1"));
+
+        // Warms up the compiler on a small instance, so that the first points are not measured interpreted.
+        Puzzle warmup = PuzzleGenerator.puzzleOf(new PuzzleGenerator(20, 20, PuzzleGenerator.uniformLengths(8)).generate(seed, -1));
+        for (String name : solvers)
+            if (SOLVERS.containsKey(name))
+                for (int k = 0; k < 5; k++)
+                    measure(SOLVERS.get(name), warmup, timeout);
+
+        List<Run> runs = new ArrayList<Run>();
+        for (String size : sizes) {
+            String[] dims = size.split("x");
+            int rows = Integer.parseInt(dims[0]), columns = Integer.parseInt(dims[dims.length - 1]);
+            for (String coverage : coverages)
+                for (String length : lengths) {
+                    PuzzleGenerator generator = new PuzzleGenerator(rows, columns,
+                            PuzzleGenerator.uniformLengths(Integer.parseInt(length)));
+                    generator.setCoverage(Double.parseDouble(coverage));
+                    for (int k = 0; k < instances; k++) {
+                        Puzzle puzzle = PuzzleGenerator.puzzleOf(generator.generate(seed, k));
+                        int clues = 0;
+                        for (int v : puzzle.values)
+                            if (v > 0)
+                                clues++;
+                        for (String name : solvers) {
+                            if (!SOLVERS.containsKey(name))
+                                throw new IllegalArgumentException("Unknown solver " + name);
+                            // The fastest of the repetitions is kept, the slower ones being disturbed by the machine.
+                            Run run = measure(SOLVERS.get(name), puzzle, timeout);
+                            for (int r = 1; r < repeat; r++) {
+                                Run again = measure(SOLVERS.get(name), puzzle, timeout);
+                                if (again.timeMs < run.timeMs)
+                                    run = again;
+                            }
+                            run.solver = name;
+                            run.rows = rows;
+                            run.columns = columns;
+                            run.coverage = Double.parseDouble(coverage);
+                            run.maxLength = Integer.parseInt(length);
+                            run.instance = k;
+                            run.clues = clues;
+                            runs.add(run);
+                            System.out.println(run.toCsv());
+                        }
+                    }
+                }
+        }
+
+        if (options.containsKey("csv"))
+            try (BufferedWriter out = Files.newBufferedWriter(Paths.get(options.get("csv")))) {
+                out.write(HEADER + "\n");
+                for (Run run : runs)
+                    out.write(run.toCsv() + "\n");
+            }
+        if (options.containsKey("json"))
+            try (BufferedWriter out = Files.newBufferedWriter(Paths.get(options.get("json")))) {
+                out.write("[\n");
+                for (int k = 0; k < runs.size(); k++)
+                    out.write("  " + runs.get(k).toJson() + (k + 1 < runs.size() ? ",\n" : "\n"));
+                out.write("]\n");
+            }
+        if (options.containsKey("baseline")) {
+            List<Run> baseline = new ArrayList<Run>();
+            List<String> lines = Files.readAllLines(Paths.get(options.get("baseline")));
+            for (String line : lines.subList(1, lines.size()))
+                baseline.add(Run.fromCsv(line));
+            double threshold = Double.parseDouble(options.getOrDefault("threshold", "1.25"));
+            if (compare(runs, baseline, threshold) > 0)
+                System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Limits on the resources a solver may use: wall-clock time, number of
+ * backtracking nodes and heap memory. The solvers check the budget every
+ * CHECK_PERIOD nodes, so a limit can be exceeded by at most that many nodes.
+ */
+public class SearchBudget {
+    // Value of a limit that is not set.
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    // Number of nodes between two checks of the budget (a power of two).
+    static final int CHECK_PERIOD = 1024;
+
+    // Longest time limit counted in nanoseconds without overflow, any longer one being unlimited.
+    static final long MAX_TIME_MILLIS = Long.MAX_VALUE / 1000000;
+
+    // The limits: time in milliseconds, nodes, and used heap in bytes.
+    public final long timeMillis, nodeLimit, memoryBytes;
+
+    // Deadline, in System.nanoTime() units, counted from the construction (see start).
+    private final long deadline;
+
+    /**
+     * Constructs a budget, its time counted from now. Any limit can be set to UNLIMITED;
+     * a time limit above MAX_TIME_MILLIS is unlimited too.
+     *
+     * @param timeMillis  The maximum solving time in milliseconds.
+     * @param nodeLimit   The maximum number of backtracking nodes.
+     * @param memoryBytes The maximum heap memory in use, in bytes.
+     */
+    public SearchBudget(long timeMillis, long nodeLimit, long memoryBytes) {
+        this.timeMillis = timeMillis;
+        this.nodeLimit = nodeLimit;
+        this.memoryBytes = memoryBytes;
+        deadline = timeMillis > MAX_TIME_MILLIS ? UNLIMITED : System.nanoTime() + timeMillis * 1000000;
+    }
+
+    /**
+     * Returns the budget of a solve beginning now, with the same limits. Called when a solve begins,
+     * so that a budget can be set once for many solves.
+     *
+     * @return The budget, its time counted from now.
+     */
+    SearchBudget start() {
+        return new SearchBudget(timeMillis, nodeLimit, memoryBytes);
+    }
+
+    /**
+     * Checks whether one of the limits is reached.
+     *
+     * @param nodes The number of nodes visited so far.
+     * @return true if the solver must stop; otherwise, false.
+     */
+    boolean exceeded(long nodes) {
+        if (nodes >= nodeLimit)
+            return true;
+        // Compared by difference, which stays right when System.nanoTime() wraps around.
+        if (timeMillis <= MAX_TIME_MILLIS && System.nanoTime() - deadline >= 0)
+            return true;
+        if (memoryBytes != UNLIMITED) {
+            Runtime rt = Runtime.getRuntime();
+            return rt.totalMemory() - rt.freeMemory() >= memoryBytes;
+        }
+        return false;
+    }
+}
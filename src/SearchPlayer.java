@@ -0,0 +1,189 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Replays a log written by SearchRecorder into a display, at a given speed,
+ * from the beginning or from any step of the search.
+ */
+public class SearchPlayer {
+    // Dimensions of the grid.
+    final int n, m;
+
+    // The mapped log, positioned on the next event.
+    private final MappedByteBuffer log;
+
+    // Index of the next event, and cell of the previous one.
+    private long step = 0;
+    private int previous = 0;
+
+    // Whether the log ends in the middle of an event, as when the recording process was killed.
+    private boolean truncated = false;
+
+    // Current color (opcode) and value of each cell.
+    private final byte[] colors;
+    private final int[] values;
+
+    /**
+     * Opens a log.
+     *
+     * @param fileName The file path of the log.
+     * @throws IOException If the file cannot be read or is not a log.
+     */
+    SearchPlayer(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            log = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (log.remaining() < 13 || log.getInt() != SearchRecorder.MAGIC || log.get() != SearchRecorder.VERSION)
+            throw new IOException("Not a search log: " + fileName);
+        n = log.getInt();
+        m = log.getInt();
+        colors = new byte[n * m];
+        values = new int[n * m];
+    }
+
+    /**
+     * Returns the index of the next event to be played.
+     *
+     * @return The current step.
+     */
+    public long step() {
+        return step;
+    }
+
+    /**
+     * Tells whether the log was found to end in the middle of an event, the playback having
+     * stopped on the last complete one.
+     *
+     * @return true if the log is cut short; otherwise, false.
+     */
+    public boolean truncated() {
+        return truncated;
+    }
+
+    /**
+     * Moves to a step of the search without displaying the intermediate events,
+     * then displays the state of every cell at this step.
+     *
+     * @param target  The index of the next event to play.
+     * @param display The display to update.
+     */
+    void seek(long target, GridDisplay display) {
+        boolean rewound = target < step;
+        if (rewound) {
+            log.position(13);
+            step = 0;
+            previous = 0;
+            Arrays.fill(colors, (byte) 0);
+            Arrays.fill(values, 0);
+        }
+        while (step < target && log.hasRemaining())
+            next(null);
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < m; j++) {
+                // After rewinding, the values set after the target are cleared from the display too.
+                if (values[i * m + j] > 0 || rewound)
+                    display.setValue(i, j, values[i * m + j]);
+                show(display, i * m + j, colors[i * m + j]);
+            }
+    }
+
+    /**
+     * Plays the events from the current step to the end of the log.
+     *
+     * @param display         The display receiving the events.
+     * @param eventsPerSecond The speed of the replay, 0 to play as fast as possible.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    void play(GridDisplay display, double eventsPerSecond) throws InterruptedException {
+        long start = System.nanoTime(), first = step;
+        while (log.hasRemaining()) {
+            next(display);
+            if (eventsPerSecond > 0) {
+                // Sleep until the time of the next event, by slices of at least 1 ms.
+                long due = start + (long) ((step - first) * 1e9 / eventsPerSecond);
+                long wait = due - System.nanoTime();
+                if (wait > 1000000)
+                    Thread.sleep(wait / 1000000);
+            }
+        }
+    }
+
+    // Decodes and applies the next event, forwarding it to the display if not null.
+    // An event cut short by the end of the log is dropped, and ends the playback.
+    private void next(GridDisplay display) {
+        int code = readVarint();
+        int zigzag = code >>> 2;
+        int cell = previous + ((zigzag >>> 1) ^ -(zigzag & 1));
+        int value = code >= 0 && (code & 3) == SearchRecorder.VALUE ? readVarint() : 0;
+        if (code < 0 || value < 0 || cell < 0 || cell >= n * m) {
+            truncated = true;
+            log.position(log.limit());
+            return;
+        }
+        previous = cell;
+        step++;
+        if ((code & 3) == SearchRecorder.VALUE) {
+            values[cell] = value;
+            if (display != null)
+                display.setValue(cell / m, cell % m, values[cell]);
+        } else {
+            colors[cell] = (byte) (code & 3);
+            if (display != null)
+                show(display, cell, colors[cell]);
+        }
+    }
+
+    private void show(GridDisplay display, int cell, int color) {
+        if (color == SearchRecorder.RED)
+            display.changeRed(cell / m, cell % m);
+        else if (color == SearchRecorder.GREEN)
+            display.changeGreen(cell / m, cell % m);
+        else
+            display.changeGrey(cell / m, cell % m);
+    }
+
+    // Reads a varint, -1 if the log ends before its last byte.
+    private int readVarint() {
+        int value = 0;
+        for (int shift = 0;; shift += 7) {
+            if (!log.hasRemaining())
+                return -1;
+            int b = log.get() & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+    }
+
+    /**
+     * Replays a log in the graphical user interface, when clicking on the start button.
+     *
+     * @param args The log file, the speed in events per second (0 for the fastest replay),
+     *             and the step to start from.
+     * @throws IOException If an exception occurre while reading the file.
+     */
+    public static void main(String args[]) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: SearchPlayer <log> [events per second] [start step]");
+            return;
+        }
+        SearchPlayer player = new SearchPlayer(args[0]);
+        double speed = args.length > 1 ? Double.parseDouble(args[1]) : 1000;
+        long start = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        GUI[] gui = new GUI[1];
+        gui[0] = new GUI(player.m, player.n, () -> {
+            try {
+                player.play(gui[0], speed);
+                if (player.truncated())
+                    System.out.println("The log is cut short after step " + player.step());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        player.seek(start, gui[0]);
+    }
+}
@@ -0,0 +1,125 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Display recording every change of the cells into a compact binary log, to be replayed
+ * later with SearchPlayer. Changes are forwarded to another display (a GUI, or a headless one).
+ *
+ * The log starts with the magic "LPXR" (int), the version (byte), then n and m (ints).
+ * Each event is a varint holding the opcode on its 2 lowest bits (GREY, RED, GREEN, VALUE)
+ * and above them the zigzag-encoded difference between its cell index and the one of the
+ * previous event; a VALUE event is followed by the value as a varint.
+ */
+public class SearchRecorder implements GridDisplay, Closeable {
+    static final int MAGIC = 0x4C505852;
+    static final int VERSION = 1;
+    static final int GREY = 0, RED = 1, GREEN = 2, VALUE = 3;
+
+    // Dimensions of the grid.
+    private final int m;
+
+    // The display receiving the changes.
+    final GridDisplay delegate;
+
+    // Buffer of encoded events, written to the channel when full.
+    private final FileChannel channel;
+    private final byte[] buffer = new byte[1 << 16];
+    private int size = 0, previous = 0;
+    private long events = 0;
+
+    /**
+     * Creates a log file and writes its header.
+     *
+     * @param fileName The file path of the log.
+     * @param n        The number of rows.
+     * @param m        The number of columns.
+     * @param delegate The display receiving the changes.
+     * @throws IOException If the file cannot be created.
+     */
+    SearchRecorder(String fileName, int n, int m, GridDisplay delegate) throws IOException {
+        this.m = m;
+        this.delegate = delegate;
+        channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(13);
+        header.putInt(MAGIC).put((byte) VERSION).putInt(n).putInt(m).flip();
+        channel.write(header);
+    }
+
+    @Override
+    public void changeGrey(int i, int j) {
+        record(i * m + j, GREY);
+        delegate.changeGrey(i, j);
+    }
+
+    @Override
+    public void changeRed(int i, int j) {
+        record(i * m + j, RED);
+        delegate.changeRed(i, j);
+    }
+
+    @Override
+    public void changeGreen(int i, int j) {
+        record(i * m + j, GREEN);
+        delegate.changeGreen(i, j);
+    }
+
+    @Override
+    public void setValue(int i, int j, int value) {
+        record(i * m + j, VALUE);
+        writeVarint(value);
+        delegate.setValue(i, j, value);
+    }
+
+    /**
+     * Returns the number of events recorded.
+     *
+     * @return The number of events.
+     */
+    public long events() {
+        return events;
+    }
+
+    private void record(int cell, int opcode) {
+        int delta = cell - previous;
+        previous = cell;
+        events++;
+        writeVarint((((delta << 1) ^ (delta >> 31)) << 2) | opcode);
+    }
+
+    private void writeVarint(int value) {
+        // A varint takes at most 5 bytes.
+        if (size > buffer.length - 5)
+            flush();
+        while ((value & ~0x7F) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    /**
+     * Writes the buffered events to the file.
+     */
+    public void flush() {
+        try {
+            ByteBuffer out = ByteBuffer.wrap(buffer, 0, size);
+            while (out.hasRemaining())
+                channel.write(out);
+            size = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+}
@@ -0,0 +1,124 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Scanner;
+
+/**
+ * Represents a solution of an instance as the list of its paths.
+ * Each path is the sequence of the cells it goes through (as indices i * m + j),
+ * from one clue to the other.
+ *
+ * The text format of a solution mirrors the one of the instances: the number of columns,
+ * the number of rows and the number of paths on one line each, followed by one line per path
+ * listing its cell indices. As paths are kept in canonical order, two equal solutions
+ * are written identically.
+ */
+public class Solution {
+    // Dimensions of the grid.
+    public final int n, m;
+
+    // The paths of the solution.
+    final int[][] paths;
+
+    /**
+     * Constructs a solution from its paths, in canonical order: each path starts
+     * from its endpoint with the smallest index, and paths are sorted by their first cell.
+     *
+     * @param n     The number of rows.
+     * @param m     The number of columns.
+     * @param paths The cells of each path, in order.
+     */
+    Solution(int n, int m, int[][] paths) {
+        this.n = n;
+        this.m = m;
+        for (int[] path : paths)
+            if (path[path.length - 1] < path[0])
+                for (int a = 0, b = path.length - 1; a < b; a++, b--) {
+                    int tmp = path[a];
+                    path[a] = path[b];
+                    path[b] = tmp;
+                }
+        Arrays.sort(paths, (p1, p2) -> Integer.compare(p1[0], p2[0]));
+        this.paths = paths;
+    }
+
+    /**
+     * Computes the path each cell belongs to.
+     *
+     * @return The index of the path of each cell in row-major order, -1 for cells on no path.
+     */
+    int[] owners() {
+        int[] owners = new int[n * m];
+        Arrays.fill(owners, -1);
+        for (int p = 0; p < paths.length; p++)
+            for (int c : paths[p])
+                owners[c] = p;
+        return owners;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Solution))
+            return false;
+        Solution other = (Solution) o;
+        return n == other.n && m == other.m && Arrays.deepEquals(paths, other.paths);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * n + m) + Arrays.deepHashCode(paths);
+    }
+
+    /**
+     * Writes the solution in the canonical text format.
+     *
+     * @param fileName The file path of the solution.
+     * @throws IOException If an error occurs while writing the file.
+     */
+    void writeText(String fileName) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(fileName))) {
+            writeText(out);
+        }
+    }
+
+    /**
+     * Writes the solution in the canonical text format to a stream.
+     *
+     * @param out The stream, left open.
+     * @throws IOException If an error occurs while writing.
+     */
+    void writeText(Writer out) throws IOException {
+        out.write(m + "\n" + n + "\n" + paths.length + "\n");
+        StringBuilder line = new StringBuilder();
+        for (int[] path : paths) {
+            line.setLength(0);
+            for (int idx = 0; idx < path.length; idx++) {
+                if (idx > 0)
+                    line.append(' ');
+                line.append(path[idx]);
+            }
+            out.write(line.append('\n').toString());
+        }
+    }
+
+    /**
+     * Reads a solution written by writeText.
+     *
+     * @param fileName The file path of the solution.
+     * @return The solution.
+     * @throws IOException If an error occurs while reading the file.
+     */
+    static Solution readText(String fileName) throws IOException {
+        try (Scanner scanner = new Scanner(Files.newBufferedReader(Paths.get(fileName)))) {
+            int m = Integer.parseInt(scanner.nextLine().trim());
+            int n = Integer.parseInt(scanner.nextLine().trim());
+            int[][] paths = new int[Integer.parseInt(scanner.nextLine().trim())][];
+            for (int p = 0; p < paths.length; p++)
+                paths[p] = Arrays.stream(scanner.nextLine().trim().split("\\s+")).mapToInt(Integer::parseInt).toArray();
+            return new Solution(n, m, paths);
+        }
+    }
+}
@@ -0,0 +1,337 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Cache of solutions placed in front of the solvers. Instances are normalized under the
+ * 8 symmetries of the grid (rotations and mirrors, including the ones swapping rows and
+ * columns of non-square grids), so a rotated or mirrored copy of a solved instance is
+ * answered from the cache, its solution being mapped back through the inverse symmetry.
+ * Entries are kept in an in-memory LRU tier, and optionally in a directory on disk.
+ */
+public class SolutionCache {
+    private static final int MAGIC = 0x4C505853;
+    private static final int VERSION = 1;
+
+    /**
+     * Instance in canonical orientation, used as key of the cache.
+     */
+    private static class Key {
+        final int n, m;
+        final int[] values;
+        final long hash;
+
+        Key(int n, int m, int[] values) {
+            this.n = n;
+            this.m = m;
+            this.values = values;
+            // 64-bit FNV-1a hash, also naming the entry on disk.
+            long h = 0xcbf29ce484222325L;
+            h = (h ^ n) * 0x100000001b3L;
+            h = (h ^ m) * 0x100000001b3L;
+            for (int v : values)
+                h = (h ^ v) * 0x100000001b3L;
+            hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key other = (Key) o;
+            return hash == other.hash && n == other.n && m == other.m && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (hash ^ (hash >>> 32));
+        }
+    }
+
+    /**
+     * Cached solution, in the canonical orientation, with the time it took to solve.
+     */
+    private static class Entry {
+        final Solution solution;
+        final long solveNanos;
+
+        Entry(Solution solution, long solveNanos) {
+            this.solution = solution;
+            this.solveNanos = solveNanos;
+        }
+    }
+
+    // In-memory tier, in access order so that the eldest entry is the least recently used.
+    private final LinkedHashMap<Key, Entry> memory;
+
+    // Directory of the on-disk tier, null if disabled.
+    private final Path directory;
+
+    // Statistics: hits per tier, misses, time spent in lookups and solving time saved by hits.
+    private long memoryHits = 0, diskHits = 0, misses = 0, lookupNanos = 0, savedNanos = 0;
+
+    /**
+     * Constructs a cache.
+     *
+     * @param capacity  The maximum number of entries kept in memory.
+     * @param directory The directory of the on-disk tier, or null to keep entries in memory only.
+     * @throws IOException If the directory cannot be created.
+     */
+    SolutionCache(int capacity, String directory) throws IOException {
+        this.memory = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+        this.directory = directory == null ? null : Files.createDirectories(Paths.get(directory));
+    }
+
+    /**
+     * Solves an instance, from the cache when it or one of its symmetric copies was already solved.
+     *
+     * @param puzzle  The instance.
+     * @param factory Builds the (headless) solver used on a miss.
+     * @return The outcome of the solve; on a hit, the solution mapped back to the instance orientation.
+     */
+    SolveResult solve(Puzzle puzzle, Function<Puzzle, BaseSolver> factory) {
+        long start = System.nanoTime();
+        int t = canonicalSymmetry(puzzle);
+        Key key = canonicalKey(puzzle, t);
+        Entry entry = lookup(key);
+        long lookup = System.nanoTime() - start;
+
+        synchronized (this) {
+            lookupNanos += lookup;
+            if (entry != null)
+                savedNanos += Math.max(0, entry.solveNanos - lookup);
+            else
+                misses++;
+        }
+        if (entry != null) {
+            Solution solution = transform(entry.solution, t, true);
+            Cell.State[][] assignment = new Cell.State[puzzle.n][puzzle.m];
+            for (Cell.State[] row : assignment)
+                Arrays.fill(row, Cell.State.NotColored);
+            int clues = 0;
+            for (int[] path : solution.paths) {
+                clues += path.length == 1 ? 1 : 2;
+                for (int c : path)
+                    assignment[c / puzzle.m][c % puzzle.m] = Cell.State.Colored;
+            }
+            return new SolveResult(SolveResult.Status.Solved, 0, lookup, clues, assignment, solution);
+        }
+
+        SolveResult result = factory.apply(puzzle).solve();
+        if (result.status == SolveResult.Status.Solved)
+            store(key, new Entry(transform(result.solution, t, false), result.elapsedNanos));
+        return result;
+    }
+
+    private Entry lookup(Key key) {
+        synchronized (this) {
+            Entry entry = memory.get(key);
+            if (entry != null) {
+                memoryHits++;
+                return entry;
+            }
+        }
+        if (directory == null)
+            return null;
+        Entry entry = readEntry(key);
+        if (entry != null)
+            synchronized (this) {
+                diskHits++;
+                memory.put(key, entry);
+            }
+        return entry;
+    }
+
+    private void store(Key key, Entry entry) {
+        synchronized (this) {
+            memory.put(key, entry);
+        }
+        if (directory != null)
+            writeEntry(key, entry);
+    }
+
+    /**
+     * Summarizes the hit rates and the solving time saved.
+     *
+     * @return A one-line report.
+     */
+    @Override
+    public synchronized String toString() {
+        long lookups = memoryHits + diskHits + misses;
+        return lookups + " lookups, hit rate " + String.format("%.1f", lookups == 0 ? 0. : 100. * (memoryHits + diskHits) / lookups)
+                + "% (" + memoryHits + " in memory, " + diskHits + " on disk), " + savedNanos / 1000000
+                + " ms of solving saved, " + lookupNanos / 1000000 + " ms spent in lookups";
+    }
+
+    /**
+     * Finds the symmetry giving the smallest grid, comparing the dimensions, then the values
+     * in row-major order. Symmetries are numbered by 3 bits: bit 0 swaps rows and columns,
+     * then bit 1 mirrors the rows and bit 2 mirrors the columns.
+     */
+    private static int canonicalSymmetry(Puzzle puzzle) {
+        int best = 0;
+        for (int t = 1; t < 8; t++)
+            if (compare(puzzle, t, best) < 0)
+                best = t;
+        return best;
+    }
+
+    private static int compare(Puzzle puzzle, int t1, int t2) {
+        int n1 = (t1 & 1) == 0 ? puzzle.n : puzzle.m, n2 = (t2 & 1) == 0 ? puzzle.n : puzzle.m;
+        if (n1 != n2)
+            return Integer.compare(n1, n2);
+        for (int c = 0; c < puzzle.n * puzzle.m; c++) {
+            int v1 = puzzle.values[inverse(t1, puzzle.n, puzzle.m, c)];
+            int v2 = puzzle.values[inverse(t2, puzzle.n, puzzle.m, c)];
+            if (v1 != v2)
+                return Integer.compare(v1, v2);
+        }
+        return 0;
+    }
+
+    private static Key canonicalKey(Puzzle puzzle, int t) {
+        int[] values = new int[puzzle.n * puzzle.m];
+        for (int c = 0; c < values.length; c++)
+            values[c] = puzzle.values[inverse(t, puzzle.n, puzzle.m, c)];
+        return (t & 1) == 0 ? new Key(puzzle.n, puzzle.m, values) : new Key(puzzle.m, puzzle.n, values);
+    }
+
+    /**
+     * Maps a cell of the n x m grid to the transformed grid.
+     */
+    private static int forward(int t, int n, int m, int c) {
+        int a = c / m, b = c % m, rows = n, cols = m;
+        if ((t & 1) != 0) {
+            a = c % m;
+            b = c / m;
+            rows = m;
+            cols = n;
+        }
+        if ((t & 2) != 0)
+            a = rows - 1 - a;
+        if ((t & 4) != 0)
+            b = cols - 1 - b;
+        return a * cols + b;
+    }
+
+    /**
+     * Maps a cell of the transformed grid back to the n x m grid.
+     */
+    private static int inverse(int t, int n, int m, int c) {
+        int rows = (t & 1) == 0 ? n : m, cols = (t & 1) == 0 ? m : n;
+        int a = c / cols, b = c % cols;
+        if ((t & 4) != 0)
+            b = cols - 1 - b;
+        if ((t & 2) != 0)
+            a = rows - 1 - a;
+        return (t & 1) == 0 ? a * m + b : b * m + a;
+    }
+
+    /**
+     * Transforms a solution of the n x m instance to the canonical grid, or back when inverse is set
+     * (the solution is then given on the canonical grid and n, m are read from the swapped dimensions).
+     */
+    private static Solution transform(Solution solution, int t, boolean inverse) {
+        // Dimensions of the original instance.
+        int n = inverse && (t & 1) != 0 ? solution.m : solution.n;
+        int m = inverse && (t & 1) != 0 ? solution.n : solution.m;
+        int[][] paths = new int[solution.paths.length][];
+        for (int p = 0; p < paths.length; p++) {
+            paths[p] = new int[solution.paths[p].length];
+            for (int idx = 0; idx < paths[p].length; idx++)
+                paths[p][idx] = inverse ? inverse(t, n, m, solution.paths[p][idx])
+                        : forward(t, n, m, solution.paths[p][idx]);
+        }
+        if (inverse)
+            return new Solution(n, m, paths);
+        return (t & 1) == 0 ? new Solution(n, m, paths) : new Solution(m, n, paths);
+    }
+
+    private Path entryFile(Key key) {
+        return directory.resolve(String.format("%016x.lpxs", key.hash));
+    }
+
+    // Reads an entry from the disk tier, null if absent, if the file holds a colliding instance, or if
+    // it is truncated or corrupt, including a solution not solving the instance (the entry is then
+    // written again once the instance is solved).
+    private Entry readEntry(Key key) {
+        Path file = entryFile(key);
+        if (!Files.exists(file))
+            return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION)
+                return null;
+            long solveNanos = in.readLong();
+            int n = in.readInt(), m = in.readInt();
+            if (n != key.n || m != key.m)
+                return null;
+            for (int c = 0; c < n * m; c++)
+                if (in.readInt() != key.values[c])
+                    return null;
+            int count = in.readInt();
+            if (count < 0 || count > n * m)
+                return null;
+            int[][] paths = new int[count][];
+            for (int p = 0; p < paths.length; p++) {
+                int length = in.readInt();
+                if (length < 1 || length > n * m)
+                    return null;
+                paths[p] = new int[length];
+                for (int idx = 0; idx < length; idx++) {
+                    paths[p][idx] = in.readInt();
+                    if (paths[p][idx] < 0 || paths[p][idx] >= n * m)
+                        return null;
+                }
+            }
+            // A byte changed inside the ranges checked above would give a wrong solution: the solution
+            // is checked against the instance (in linear time) before being served.
+            Solution solution = new Solution(n, m, paths);
+            if (SolutionVerifier.check(new Puzzle(n, m, key.values), solution) != null)
+                return null;
+            return new Entry(solution, solveNanos);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void writeEntry(Key key, Entry entry) {
+        Path file = entryFile(key);
+        try {
+            Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeLong(entry.solveNanos);
+                out.writeInt(key.n);
+                out.writeInt(key.m);
+                for (int v : key.values)
+                    out.writeInt(v);
+                out.writeInt(entry.solution.paths.length);
+                for (int[] path : entry.solution.paths) {
+                    out.writeInt(path.length);
+                    for (int c : path)
+                        out.writeInt(c);
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the solutions of an instance up to a limit, a limit of 2 telling whether the solution is unique.
+ * Each worker runs the propagation of the improved combination exclusion solver, then explores a share
+ * of the branches of the backtracking, which continues past the solutions until the limit is reached.
+ * States already explored without solution at the start of a clue are cached by each worker.
+ */
+public class SolutionCounter {
+    // Number of branchings fixed by a task: 4^SPLIT_DEPTH tasks are shared by the workers.
+    static final int SPLIT_DEPTH = 3;
+
+    // Number of states without solution remembered by each worker.
+    static final int CACHE_SIZE = 1 << 20;
+
+    /**
+     * Counts the solutions of an instance.
+     *
+     * @param puzzle  The instance.
+     * @param limit   The number of solutions at which the counting stops.
+     * @param threads The number of workers.
+     * @return The number of solutions, at most limit.
+     */
+    static long count(Puzzle puzzle, long limit, int threads) {
+        if (puzzle.maxValue() == 0)
+            return 1;
+        AtomicLong count = new AtomicLong();
+        AtomicInteger tasks = new AtomicInteger();
+        int splitDepth = threads == 1 ? 0 : SPLIT_DEPTH;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            Future<?>[] workers = new Future<?>[threads];
+            for (int w = 0; w < threads; w++)
+                workers[w] = pool.submit(() -> new ImprovedCombinationExclusionSolver(puzzle, true)
+                        .countSolutions(count, limit, tasks, splitDepth, CACHE_SIZE));
+            for (Future<?> worker : workers)
+                worker.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return Math.min(count.get(), limit);
+    }
+
+    /**
+     * Tells whether an instance has exactly one solution.
+     *
+     * @param puzzle The instance.
+     * @return true if the instance has one solution; otherwise, false.
+     */
+    static boolean isUnique(Puzzle puzzle) {
+        return count(puzzle, 2, Runtime.getRuntime().availableProcessors()) == 1;
+    }
+
+    /**
+     * Counts the solutions of an instance file.
+     *
+     * @param args The instance, then optionally the limit (2 by default) and the number of workers.
+     * @throws IOException If the instance cannot be read.
+     */
+    public static void main(String args[]) throws IOException {
+        if (args.length < 1 || args.length > 3) {
+            System.out.println("Usage: SolutionCounter <instance.txt> [limit] [threads]");
+            return;
+        }
+        Puzzle puzzle = Puzzle.readText(args[0]);
+        long limit = args.length > 1 ? Long.parseLong(args[1]) : 2;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long start = System.nanoTime();
+        long solutions = count(puzzle, limit, threads);
+        System.out.println((solutions >= limit ? "At least " : "") + solutions + " solution(s) found in "
+                + (System.nanoTime() - start) / 1000000 + " ms with " + threads + " thread(s)");
+    }
+}
@@ -0,0 +1,100 @@
+import java.io.IOException;
+
+/**
+ * Checks in linear time that a solution solves an instance:
+ * - every path joins two clues equal to its length (or is a single cell with a 1 clue),
+ * - consecutive cells of a path are adjacent,
+ * - paths do not overlap and no clue lies in the middle of a path,
+ * - every clue is the end of a path.
+ */
+public class SolutionVerifier {
+
+    /**
+     * Checks a solution against an instance.
+     *
+     * @param puzzle   The instance.
+     * @param solution The solution to check.
+     * @return null if the solution is valid, otherwise the description of the first violation found.
+     */
+    static String check(Puzzle puzzle, Solution solution) {
+        int n = puzzle.n, m = puzzle.m;
+        if (solution.n != n || solution.m != m)
+            return "Dimensions " + solution.n + "x" + solution.m + " differ from the instance " + n + "x" + m;
+
+        boolean[] used = new boolean[n * m];
+        for (int p = 0; p < solution.paths.length; p++) {
+            int[] path = solution.paths[p];
+            int l = path.length;
+            for (int idx = 0; idx < l; idx++) {
+                int c = path[idx];
+                if (c < 0 || c >= n * m)
+                    return "Path " + p + " leaves the grid";
+                if (used[c])
+                    return "Cell (" + c / m + ", " + c % m + ") is on two paths";
+                used[c] = true;
+                if (idx > 0) {
+                    int prev = path[idx - 1];
+                    if (Math.abs(prev / m - c / m) + Math.abs(prev % m - c % m) != 1)
+                        return "Path " + p + " jumps from (" + prev / m + ", " + prev % m + ") to (" + c / m + ", "
+                                + c % m + ")";
+                }
+                boolean end = idx == 0 || idx == l - 1;
+                if (end && puzzle.values[c] != l)
+                    return "Path " + p + " of length " + l + " ends on (" + c / m + ", " + c % m + ") with clue "
+                            + puzzle.values[c];
+                if (!end && puzzle.values[c] != 0)
+                    return "Clue at (" + c / m + ", " + c % m + ") lies in the middle of path " + p;
+            }
+        }
+        for (int c = 0; c < n * m; c++)
+            if (puzzle.values[c] > 0 && !used[c])
+                return "Clue at (" + c / m + ", " + c % m + ") is not connected";
+        return null;
+    }
+
+    /**
+     * Checks a solution against an instance.
+     *
+     * @param puzzle   The instance.
+     * @param solution The solution to check.
+     * @return true if the solution is valid; otherwise, false.
+     */
+    static boolean isValid(Puzzle puzzle, Solution solution) {
+        return check(puzzle, solution) == null;
+    }
+
+    /**
+     * Verifies solutions from the command line.
+     *
+     * Usage:
+     * - SolutionVerifier instance.txt solution.txt: checks one solution in text format.
+     * - SolutionVerifier container.lpx: checks every solution stored in a container.
+     *
+     * @param args The files to check.
+     * @throws IOException If an exception occurre while reading a file.
+     */
+    public static void main(String args[]) throws IOException {
+        if (args.length == 2) {
+            String error = check(Puzzle.readText(args[0]), Solution.readText(args[1]));
+            System.out.println(error == null ? "Valid solution" : error);
+        } else if (args.length == 1) {
+            PuzzleContainer container = PuzzleContainer.open(args[0]);
+            int checked = 0, invalid = 0;
+            long start = System.nanoTime();
+            for (int k = 0; k < container.size(); k++) {
+                Solution solution = container.solution(k);
+                if (solution == null)
+                    continue;
+                checked++;
+                String error = check(container.puzzle(k), solution);
+                if (error != null) {
+                    invalid++;
+                    System.out.println("Record " + k + ": " + error);
+                }
+            }
+            System.out.println(checked + " solutions checked in " + (System.nanoTime() - start) / 1000000 + " ms, "
+                    + invalid + " invalid");
+        } else
+            System.out.println("Usage: SolutionVerifier <instance.txt> <solution.txt> | <container>");
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * Outcome of a solve: the status, the statistics of the search, and the
+ * assignment of the cells. When the instance is not solved, the assignment
+ * is the best partial one found, the one with the most clues resolved.
+ */
+public class SolveResult {
+
+    /**
+     * Possible outcomes of a solve.
+     * SOLVED: Every clue is connected.
+     * UNSAT: The search space was exhausted without finding a solution.
+     * TIMED_OUT: The budget was exceeded before the search ended.
+     */
+    public enum Status {
+        Solved, Unsat, TimedOut;
+    }
+
+    public final Status status;
+
+    // Number of backtracking nodes visited and solving time.
+    public final long nodes, elapsedNanos;
+
+    // Number of clues whose paths are placed in the assignment, by the propagation or the search.
+    public final int resolvedClues;
+
+    // State of each cell, null when no clue could be resolved.
+    public final Cell.State[][] assignment;
+
+    // The paths of the solution, null when the instance is not solved.
+    public final Solution solution;
+
+    SolveResult(Status status, long nodes, long elapsedNanos, int resolvedClues, Cell.State[][] assignment,
+            Solution solution) {
+        this.status = status;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+        this.resolvedClues = resolvedClues;
+        this.assignment = assignment;
+        this.solution = solution;
+    }
+
+    @Override
+    public String toString() {
+        return status + " in " + elapsedNanos / 1000000 + " ms, " + nodes + " nodes, "
+                + resolvedClues + " clues resolved";
+    }
+}
@@ -0,0 +1,190 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Snapshot of the search state of the improved combination exclusion solver,
+ * stored in a compact binary file so that a long solve can be resumed after a restart.
+ * Cell states are packed on 2 bits, clue flags on 1 bit, and cell indices as varints.
+ * The search path is stored as the stack of directions taken in the backtracking.
+ */
+public class SolverCheckpoint {
+    // File signature ("LPXC") and format version.
+    private static final int MAGIC = 0x4C505843;
+    private static final int VERSION = 1;
+
+    // Dimensions of the grid and number of clues.
+    int n, m, clueCount;
+
+    // Clue being explored and number of nodes visited when the snapshot was taken.
+    int cluePosition;
+    long nodes;
+
+    // State ordinal of each cell, in row-major order.
+    byte[] states;
+
+    // Clue the cell belongs to (b1), for each cell, only meaningful for colored cells.
+    int[] owners;
+
+    // Per clue flags: clue resolved, and clue present in the oracle.
+    boolean[] validClue, inOracle;
+
+    // Per clue candidate chain (cell indices, -1 if unset) and combination flags.
+    int[][] chains;
+    boolean[][] combination;
+
+    // Directions taken in the backtracking, from the root to the current node.
+    int depth;
+    byte[] decisions;
+
+    /**
+     * Writes the checkpoint to a temporary file, then atomically replaces the target,
+     * so that a crash while writing never leaves a truncated checkpoint behind.
+     *
+     * @param file The checkpoint file.
+     * @return The number of bytes written.
+     * @throws IOException If an error occurs while writing the file.
+     */
+    long write(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(n);
+            out.writeInt(m);
+            out.writeInt(clueCount);
+            out.writeInt(cluePosition);
+            out.writeLong(nodes);
+
+            // Cell states, 4 cells per byte.
+            for (int c = 0; c < n * m; c += 4) {
+                int packed = 0;
+                for (int k = 0; k < 4 && c + k < n * m; k++)
+                    packed |= states[c + k] << (2 * k);
+                out.writeByte(packed);
+            }
+            // Owners of colored cells only.
+            for (int c = 0; c < n * m; c++)
+                if (states[c] == Cell.State.Colored.ordinal())
+                    writeVarint(out, owners[c] + 1);
+
+            writeBits(out, validClue);
+            writeBits(out, inOracle);
+            for (int k = 0; k < clueCount; k++) {
+                writeBits(out, combination[k]);
+                for (int idx = 0; idx < chains[k].length; idx++)
+                    writeVarint(out, chains[k][idx] + 1);
+            }
+
+            // Directions, 4 per byte.
+            writeVarint(out, depth);
+            for (int d = 0; d < depth; d += 4) {
+                int packed = 0;
+                for (int k = 0; k < 4 && d + k < depth; k++)
+                    packed |= decisions[d + k] << (2 * k);
+                out.writeByte(packed);
+            }
+        }
+        long size = Files.size(tmp);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return size;
+    }
+
+    /**
+     * Reads a checkpoint previously written by {@link #write(Path)}.
+     * The chains are sized from the clue values, given in row-major order.
+     *
+     * @param file       The checkpoint file.
+     * @param clueValues The value of each clue of the instance.
+     * @return The checkpoint.
+     * @throws IOException If the file cannot be read or does not match the instance.
+     */
+    static SolverCheckpoint read(Path file, int[] clueValues) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION)
+                throw new IOException("Not a solver checkpoint: " + file);
+            SolverCheckpoint cp = new SolverCheckpoint();
+            cp.n = in.readInt();
+            cp.m = in.readInt();
+            cp.clueCount = in.readInt();
+            if (cp.clueCount != clueValues.length)
+                throw new IOException("Checkpoint does not match the instance: " + file);
+            cp.cluePosition = in.readInt();
+            cp.nodes = in.readLong();
+
+            int size = cp.n * cp.m;
+            cp.states = new byte[size];
+            for (int c = 0; c < size; c += 4) {
+                int packed = in.readUnsignedByte();
+                for (int k = 0; k < 4 && c + k < size; k++)
+                    cp.states[c + k] = (byte) ((packed >> (2 * k)) & 3);
+            }
+            cp.owners = new int[size];
+            for (int c = 0; c < size; c++)
+                cp.owners[c] = cp.states[c] == Cell.State.Colored.ordinal() ? readVarint(in) - 1 : -1;
+
+            cp.validClue = readBits(in, cp.clueCount);
+            cp.inOracle = readBits(in, cp.clueCount);
+            cp.combination = new boolean[cp.clueCount][];
+            cp.chains = new int[cp.clueCount][];
+            for (int k = 0; k < cp.clueCount; k++) {
+                cp.combination[k] = readBits(in, clueValues[k]);
+                cp.chains[k] = new int[clueValues[k]];
+                for (int idx = 0; idx < clueValues[k]; idx++)
+                    cp.chains[k][idx] = readVarint(in) - 1;
+            }
+
+            cp.depth = readVarint(in);
+            cp.decisions = new byte[Math.max(size, cp.depth)];
+            for (int d = 0; d < cp.depth; d += 4) {
+                int packed = in.readUnsignedByte();
+                for (int k = 0; k < 4 && d + k < cp.depth; k++)
+                    cp.decisions[d + k] = (byte) ((packed >> (2 * k)) & 3);
+            }
+            return cp;
+        }
+    }
+
+    private static void writeBits(DataOutputStream out, boolean[] bits) throws IOException {
+        for (int b = 0; b < bits.length; b += 8) {
+            int packed = 0;
+            for (int k = 0; k < 8 && b + k < bits.length; k++)
+                if (bits[b + k])
+                    packed |= 1 << k;
+            out.writeByte(packed);
+        }
+    }
+
+    private static boolean[] readBits(DataInputStream in, int length) throws IOException {
+        boolean[] bits = new boolean[length];
+        for (int b = 0; b < length; b += 8) {
+            int packed = in.readUnsignedByte();
+            for (int k = 0; k < 8 && b + k < length; k++)
+                bits[b + k] = (packed & (1 << k)) != 0;
+        }
+        return bits;
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0;; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+    }
+}
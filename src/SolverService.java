@@ -0,0 +1,348 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Solves instances over HTTP on the local machine, so that other services avoid starting a JVM
+ * per instance. POST /solve takes an instance in the text format or a container (PuzzleContainer),
+ * and streams back the result of each instance as soon as it is solved, in order: a status line
+ * (SolveResult) followed by the solution in the text format when solved. GET /metrics reports the
+ * counters and the latency quantiles.
+ *
+ * The instances are queued, and each worker takes them by batches: a worker waiting for an
+ * instance also takes the ones queued behind it, up to the batch size, and solves them in a row.
+ * The workers are warmed up at start, so that the first requests run compiled code, and each one
+ * keeps its solver (ices) from an instance to the next, loading the next instance into its buffers.
+ * Requests are handled on virtual threads when the JDK has them. An optional SolutionCache, shared
+ * by the workers, answers the instances already solved and their rotated or mirrored copies.
+ *
+ * Usage: SolverService [port, 8080 by default] [workers] [batch size, 16 by default] [cache directory]
+ * Options of /solve: timeout (positive, in milliseconds, 10000 by default) and solver (ices, the default,
+ * or compact); any other value is answered with a 400.
+ */
+public class SolverService {
+    // Longest solve allowed by default, in milliseconds.
+    static final long DEFAULT_TIMEOUT = 10000;
+
+    /**
+     * An instance waiting for a worker, and the result promised to its request.
+     */
+    static class Job {
+        final Puzzle puzzle;
+        final long timeout;
+        final boolean compact;
+        final long queued = System.nanoTime();
+        final CompletableFuture<SolveResult> result = new CompletableFuture<SolveResult>();
+
+        Job(Puzzle puzzle, long timeout, boolean compact) {
+            this.puzzle = puzzle;
+            this.timeout = timeout;
+            this.compact = compact;
+        }
+    }
+
+    // Connections waiting to be accepted, beyond which new ones are refused.
+    static final int BACKLOG = 1024;
+
+    // Entries kept in memory by the cache given on the command line.
+    static final int CACHE_CAPACITY = 10000;
+
+    private final HttpServer server;
+    private final ExecutorService requestExecutor = requestExecutor();
+    private final BlockingQueue<Job> queue = new LinkedBlockingQueue<Job>();
+    private final Worker[] workers;
+    private final int batchSize;
+
+    // Cache in front of the workers, null if disabled.
+    private SolutionCache cache;
+
+    // Counters, and latencies of the requests (receipt to last result) and of the solves.
+    private final AtomicLong requests = new AtomicLong(), instances = new AtomicLong(), batches = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final LatencyHistogram requestLatency = new LatencyHistogram(), queueLatency = new LatencyHistogram();
+    private final LatencyHistogram solveLatency = new LatencyHistogram();
+
+    /**
+     * Creates the service, listening on the loopback interface.
+     *
+     * @param port      The port, 0 for any free one.
+     * @param workers   The number of solving threads.
+     * @param batchSize The largest number of instances a worker takes at once.
+     * @throws IOException If the port cannot be bound.
+     */
+    SolverService(int port, int workers, int batchSize) throws IOException {
+        this.batchSize = batchSize;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        server.createContext("/solve", this::handleSolve);
+        server.createContext("/metrics", this::handleMetrics);
+        server.setExecutor(requestExecutor);
+        this.workers = new Worker[workers];
+        for (int w = 0; w < workers; w++)
+            this.workers[w] = new Worker("solver-" + w);
+    }
+
+    // Virtual threads (JDK 21) for the requests, mostly waiting on the workers; a cached pool otherwise.
+    private static ExecutorService requestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Sets the cache the workers look the instances up in, before solving them. The warm-up
+     * solves are not cached.
+     *
+     * @param cache The cache, or null to always solve.
+     */
+    void setCache(SolutionCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Warms the workers up on generated instances, then starts them and the server.
+     */
+    void start() {
+        PuzzleGenerator generator = new PuzzleGenerator(20, 20, PuzzleGenerator.uniformLengths(8));
+        for (int k = 0; k < 200; k++) {
+            Puzzle puzzle = PuzzleGenerator.puzzleOf(generator.generate(0, k));
+            Worker worker = workers[k % workers.length];
+            worker.solver(new Job(puzzle, DEFAULT_TIMEOUT, false)).solve();
+            worker.solver(new Job(puzzle, DEFAULT_TIMEOUT, true)).solve();
+        }
+        for (Worker worker : workers)
+            worker.start();
+        server.start();
+    }
+
+    /**
+     * Stops the server, waiting at most a second for the requests in progress.
+     */
+    void stop() {
+        server.stop(1);
+        requestExecutor.shutdownNow();
+        for (Worker worker : workers)
+            worker.interrupt();
+    }
+
+    /**
+     * Returns the port the service listens on.
+     *
+     * @return The port.
+     */
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * A solving thread, with the solver it reloads for each instance.
+     */
+    private class Worker extends Thread {
+        // Solver of the last instance, created for the first one (null before).
+        private ImprovedCombinationExclusionSolver solver;
+
+        Worker(String name) {
+            super(name);
+            setDaemon(true);
+        }
+
+        // Takes the instances by batches and solves them, until interrupted.
+        @Override
+        public void run() {
+            List<Job> batch = new ArrayList<Job>(batchSize);
+            try {
+                while (true) {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, batchSize - 1);
+                    batches.incrementAndGet();
+                    for (Job job : batch) {
+                        queueLatency.record(System.nanoTime() - job.queued);
+                        try {
+                            SolveResult result = solve(job);
+                            solveLatency.record(result.elapsedNanos);
+                            job.result.complete(result);
+                        } catch (RuntimeException | Error e) {
+                            failures.incrementAndGet();
+                            job.result.completeExceptionally(e);
+                            solver = null; // Its state is unknown.
+                        }
+                    }
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                // The service is stopped.
+            }
+        }
+
+        // Solves an instance, from the cache when there is one.
+        SolveResult solve(Job job) {
+            if (cache == null)
+                return solver(job).solve();
+            return cache.solve(job.puzzle, puzzle -> solver(job));
+        }
+
+        // The solver of an instance, within its timeout.
+        // The compact solver is sized for its instance, so it is not kept.
+        BaseSolver solver(Job job) {
+            BaseSolver current;
+            if (job.compact)
+                current = new CompactSolver(job.puzzle);
+            else if (solver == null)
+                current = solver = new ImprovedCombinationExclusionSolver(job.puzzle, true);
+            else {
+                solver.load(job.puzzle);
+                current = solver;
+            }
+            current.setBudget(new SearchBudget(job.timeout, SearchBudget.UNLIMITED, SearchBudget.UNLIMITED));
+            return current;
+        }
+    }
+
+    private void handleSolve(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                reply(exchange, 405, "Use POST with an instance in the text format or a container\n");
+                return;
+            }
+            requests.incrementAndGet();
+            Map<String, String> options = options(exchange.getRequestURI());
+            List<Puzzle> puzzles = new ArrayList<Puzzle>();
+            long timeout;
+            boolean compact;
+            try {
+                // The options are checked first, so that a mistyped one is reported rather than ignored.
+                timeout = Long.parseLong(options.getOrDefault("timeout", String.valueOf(DEFAULT_TIMEOUT)));
+                if (timeout <= 0)
+                    throw new IllegalArgumentException("timeout must be positive, got " + timeout);
+                String solver = options.getOrDefault("solver", "ices");
+                if (!solver.equals("ices") && !solver.equals("compact"))
+                    throw new IllegalArgumentException("unknown solver " + solver + ", expected ices or compact");
+                compact = solver.equals("compact");
+
+                byte[] body = exchange.getRequestBody().readAllBytes();
+                if (PuzzleContainer.isContainer(body)) {
+                    PuzzleContainer container = PuzzleContainer.wrap(body);
+                    for (int k = 0; k < container.size(); k++)
+                        puzzles.add(container.puzzle(k));
+                } else
+                    puzzles.add(Puzzle.parseText(body, "request"));
+            } catch (IOException | RuntimeException e) {
+                reply(exchange, 400, "Malformed request: " + e.getMessage() + "\n");
+                return;
+            }
+            List<Job> jobs = new ArrayList<Job>();
+            for (Puzzle puzzle : puzzles) {
+                Job job = new Job(puzzle, timeout, compact);
+                jobs.add(job);
+                queue.add(job);
+            }
+            instances.addAndGet(jobs.size());
+
+            // The results are streamed in order, each one as soon as it is known.
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            BufferedWriter out = new BufferedWriter(
+                    new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+            for (int k = 0; k < jobs.size(); k++) {
+                SolveResult result;
+                try {
+                    result = jobs.get(k).result.get();
+                } catch (ExecutionException e) {
+                    out.write("Instance " + k + ": failed, " + e.getCause() + "\n");
+                    out.flush();
+                    continue;
+                }
+                out.write("Instance " + k + ": " + result + "\n");
+                if (result.solution != null)
+                    result.solution.writeText(out);
+                out.flush();
+            }
+            out.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            requestLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            StringBuilder text = new StringBuilder();
+            text.append("requests_total ").append(requests.get()).append('\n');
+            text.append("instances_total ").append(instances.get()).append('\n');
+            text.append("failures_total ").append(failures.get()).append('\n');
+            text.append("batches_total ").append(batches.get()).append('\n');
+            text.append("queue_length ").append(queue.size()).append('\n');
+            histogram(text, "request_latency_ms", requestLatency);
+            histogram(text, "queue_latency_ms", queueLatency);
+            histogram(text, "solve_latency_ms", solveLatency);
+            reply(exchange, 200, text.toString());
+        }
+    }
+
+    private static void histogram(StringBuilder text, String name, LatencyHistogram histogram) {
+        for (double q : new double[] { 0.5, 0.9, 0.99 })
+            text.append(name).append("{quantile=\"").append(q).append("\"} ")
+                    .append(String.format("%.3f", histogram.quantileMillis(q))).append('\n');
+        text.append(name).append("_count ").append(histogram.count()).append('\n');
+    }
+
+    private static void reply(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    // Options of the query string, as name=value pairs separated by '&'.
+    private static Map<String, String> options(URI uri) {
+        Map<String, String> options = new HashMap<String, String>();
+        if (uri.getQuery() != null)
+            for (String option : uri.getQuery().split("&")) {
+                int eq = option.indexOf('=');
+                if (eq > 0)
+                    options.put(option.substring(0, eq), option.substring(eq + 1));
+            }
+        return options;
+    }
+
+    /**
+     * Starts the service until the JVM is stopped.
+     *
+     * @param args The port, the number of workers, the batch size and the directory of the cache, all optional.
+     * @throws IOException If the port cannot be bound.
+     * @throws InterruptedException If interrupted while serving.
+     */
+    public static void main(String args[]) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        SolverService service = new SolverService(port, workers, batchSize);
+        if (args.length > 3)
+            service.setCache(new SolutionCache(CACHE_CAPACITY, args[3]));
+        long start = System.nanoTime();
+        service.start();
+        System.out.println("Listening on http://localhost:" + service.port() + "/solve with " + workers
+                + " workers, warmed up in " + (System.nanoTime() - start) / 1000000 + " ms");
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Instances and measures shared by the benchmarks of the tail of the solve times (RestartBenchmark,
+ * LearningBenchmark), so that they compare their settings on the same instances: generated grids of
+ * 12x12 to 20x20 cells, fully or partly covered by paths.
+ */
+public class TailBenchmark {
+
+    /**
+     * Generates the instances of the benchmarks.
+     *
+     * @param count The number of instances.
+     * @return The instances, the same for a given count.
+     */
+    static Puzzle[] corpus(int count) {
+        Puzzle[] puzzles = new Puzzle[count];
+        for (int k = 0; k < count; k++) {
+            int size = 12 + k % 5 * 2;
+            PuzzleGenerator generator = new PuzzleGenerator(size, size, PuzzleGenerator.uniformLengths(10 + k % 3 * 3));
+            generator.setCoverage(k % 2 == 0 ? 1 : 0.8);
+            puzzles[k] = PuzzleGenerator.puzzleOf(generator.generate(21, k));
+        }
+        return puzzles;
+    }
+
+    /**
+     * Solves the first instances with the default options, so that the first setting measured
+     * does not run interpreted code.
+     *
+     * @param puzzles The instances.
+     */
+    static void warmUp(Puzzle[] puzzles) {
+        for (int k = 0; k < Math.min(puzzles.length, 50); k++) {
+            ImprovedCombinationExclusionSolver solver = new ImprovedCombinationExclusionSolver(puzzles[k], true);
+            solver.setBudget(new SearchBudget(200, SearchBudget.UNLIMITED, SearchBudget.UNLIMITED));
+            solver.solve();
+        }
+    }
+
+    /**
+     * Solve times of a setting over the instances.
+     */
+    static class Times {
+        private final LatencyHistogram times = new LatencyHistogram();
+        private long total = 0, longest = 0;
+        private int count = 0, timedOut = 0;
+
+        /**
+         * Adds the outcome of a solve.
+         *
+         * @param result The outcome.
+         */
+        void record(SolveResult result) {
+            times.record(result.elapsedNanos);
+            total += result.elapsedNanos;
+            longest = Math.max(longest, result.elapsedNanos);
+            count++;
+            if (result.status == SolveResult.Status.TimedOut)
+                timedOut++;
+        }
+
+        /**
+         * Summarizes the times: the 50th, 90th, 99th percentiles and the largest time, the mean,
+         * and the number of instances timed out.
+         *
+         * @return A one-line report.
+         */
+        @Override
+        public String toString() {
+            return String.format("p50 %8.1f ms  p90 %8.1f ms  p99 %8.1f ms  max %8.1f ms  mean %7.1f ms  %d timed out",
+                    times.quantileMillis(0.5), times.quantileMillis(0.9), times.quantileMillis(0.99), longest / 1e6,
+                    count == 0 ? 0. : total / 1e6 / count, timedOut);
+        }
+    }
+}
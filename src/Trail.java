@@ -0,0 +1,163 @@
+import java.util.Arrays;
+
+/**
+ * Reversible state of the exclusion solvers: every change of a cell state, of a clue flag
+ * or of the oracle goes through the trail, which stacks what is needed to undo it in a
+ * preallocated int array. A branch of the search takes a mark before changing anything,
+ * and undoes everything done since the mark in a single pop loop when it fails.
+ */
+public class Trail {
+    // Kinds of entries, stored on the 2 lowest bits of the entry code.
+    private static final int CELL = 0, CLUE = 1, ORACLE = 2;
+    private static final Cell.State[] STATES = Cell.State.values();
+
+    // The solver owning the grid and its display.
+    private final BaseSolver solver;
+
+    // Clue flags of the solver, and its oracle (null if it has none).
+    private Boolean[] validClue;
+    private ClueOracle st;
+
+    // Stack of (code, old value) pairs, with code = (index << 2) | kind.
+    private int[] entries;
+    private int size = 0;
+
+    // Zobrist-like hash of the cell states and clue flags changed through the trail.
+    private long hash = 0;
+
+    /**
+     * Constructs an empty trail, sized for a search path covering the whole grid.
+     *
+     * @param solver    The solver owning the grid.
+     * @param validClue The clue flags of the solver.
+     * @param st        The oracle of the solver, or null.
+     */
+    Trail(BaseSolver solver, Boolean[] validClue, ClueOracle st) {
+        this.solver = solver;
+        this.validClue = validClue;
+        this.st = st;
+        entries = new int[2 * (solver.n * solver.m + 2 * validClue.length + 16)];
+    }
+
+    /**
+     * Empties the trail for another instance loaded into the solver, growing it if needed.
+     *
+     * @param validClue The clue flags of the solver.
+     * @param st        The oracle of the solver, or null.
+     */
+    void reset(Boolean[] validClue, ClueOracle st) {
+        this.validClue = validClue;
+        this.st = st;
+        size = 0;
+        hash = 0;
+        int capacity = 2 * (solver.n * solver.m + 2 * validClue.length + 16);
+        if (entries.length < capacity)
+            entries = new int[capacity];
+    }
+
+    /**
+     * Returns the current position in the trail, to undo to later.
+     *
+     * @return The mark.
+     */
+    int mark() {
+        return size;
+    }
+
+    /**
+     * Returns a hash of the state reached from the state the trail was created on:
+     * two states with the same cell states and clue flags have the same hash.
+     *
+     * @return The hash.
+     */
+    long hash() {
+        return hash;
+    }
+
+    /**
+     * Changes the state of a cell and displays it.
+     *
+     * @param c     The cell.
+     * @param state The new state.
+     */
+    void setState(Cell c, Cell.State state) {
+        int index = c.i * solver.m + c.j;
+        push(index << 2 | CELL, c.state.ordinal());
+        hash ^= key(index << 2 | c.state.ordinal()) ^ key(index << 2 | state.ordinal());
+        c.state = state;
+        show(c);
+    }
+
+    /**
+     * Changes the flag telling whether a clue is resolved.
+     *
+     * @param position The position of the clue.
+     * @param valid    The new flag.
+     */
+    void setValid(int position, boolean valid) {
+        push(position << 2 | CLUE, validClue[position] ? 1 : 0);
+        if (validClue[position] != valid)
+            hash ^= key(~position);
+        validClue[position] = valid;
+    }
+
+    /**
+     * Inserts a clue in the oracle if absent, or removes it if present.
+     *
+     * @param clue The clue cell.
+     */
+    void toggleOracle(Cell clue) {
+        push((clue.i * solver.m + clue.j) << 2 | ORACLE, 0);
+        st.change(clue.i, clue.j, clue.value - 1);
+    }
+
+    /**
+     * Undoes every change done since a mark, most recent first.
+     *
+     * @param mark The mark taken before the changes.
+     */
+    void undo(int mark) {
+        while (size > mark) {
+            int old = entries[--size], code = entries[--size], index = code >>> 2;
+            switch (code & 3) {
+            case CELL:
+                Cell c = solver.configuration[index / solver.m][index % solver.m];
+                hash ^= key(index << 2 | c.state.ordinal()) ^ key(index << 2 | old);
+                c.state = STATES[old];
+                show(c);
+                break;
+            case CLUE:
+                if (validClue[index] != (old == 1))
+                    hash ^= key(~index);
+                validClue[index] = old == 1;
+                break;
+            default:
+                Cell clue = solver.configuration[index / solver.m][index % solver.m];
+                st.change(clue.i, clue.j, clue.value - 1);
+            }
+        }
+    }
+
+    private void push(int code, int old) {
+        if (size + 2 > entries.length)
+            entries = Arrays.copyOf(entries, 2 * entries.length);
+        entries[size++] = code;
+        entries[size++] = old;
+    }
+
+    // Random-looking 64-bit key of a (cell, state) or a clue flag, from the splitmix64 finalizer.
+    private static long key(long x) {
+        x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+        x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+        return x ^ (x >>> 31);
+    }
+
+    private void show(Cell c) {
+        if (c.state == Cell.State.MaybeColored)
+            solver.gui.changeRed(c.i, c.j);
+        else if (c.state == Cell.State.Colored)
+            solver.gui.changeGreen(c.i, c.j);
+        else
+            solver.gui.changeGrey(c.i, c.j);
+    }
+}
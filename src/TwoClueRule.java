@@ -0,0 +1,39 @@
+/**
+ * Places the path of a clue of 2 next to a single clue of 2 still without path, the only
+ * possible one. A clue of 2 next to none has no path, and makes the instance unsatisfiable.
+ */
+public class TwoClueRule implements DeductionRule {
+
+    @Override
+    public String name() {
+        return "pair";
+    }
+
+    @Override
+    public int apply(ImprovedCombinationExclusionSolver solver) {
+        int colored = 0;
+        for (Cell clue : solver.clues()) {
+            if (clue.value != 2 || solver.resolved(clue))
+                continue;
+            Cell partner = null;
+            int partners = 0;
+            for (int k = 0; k < 4; k++) {
+                int ni = clue.i + solver.mvt[k][0], nj = clue.j + solver.mvt[k][1];
+                if (ni > -1 && ni < solver.n && nj > -1 && nj < solver.m && solver.configuration[ni][nj].value == 2
+                        && solver.configuration[ni][nj].state == Cell.State.NotColored) {
+                    partner = solver.configuration[ni][nj];
+                    partners++;
+                }
+            }
+            if (partners == 0) {
+                solver.fail();
+                return colored;
+            }
+            if (partners == 1) {
+                solver.force(clue, partner);
+                colored += 2;
+            }
+        }
+        return colored;
+    }
+}
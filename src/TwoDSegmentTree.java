@@ -1,10 +1,12 @@
+import java.util.Arrays;
+
 /**
  * Implementation of a 2D segment tree data structure that helps efficiently answer
  * queries about specific values within a sub-region (submatrix) of a 2D grid.
  * Specifically, it can answer whether there's a clue of a certain number (below 64)
  * within a queried rectangular section of the grid.
  */
-public class TwoDSegmentTree {
+public class TwoDSegmentTree implements ClueOracle {
     // The dimensions of the grid.
     int n, m;
 
@@ -28,6 +30,18 @@ public class TwoDSegmentTree {
         }
     }
 
+    @Override
+    public boolean reset(int n, int m) {
+        if (t.length < n << 1 || t.length == 0 || t[0].length < m << 1)
+            t = new long[n << 1][m << 1];
+        else
+            for (int i = 0; i < n << 1; i++)
+                Arrays.fill(t[i], 0, m << 1, 0);
+        this.n = n;
+        this.m = m;
+        return true;
+    }
+
     /**
      * Updates the value at a specific position in the grid.
      *
@@ -41,7 +55,7 @@ public class TwoDSegmentTree {
         y += m;
 
         // Bitwise XOR to update the value at the specified position
-        t[x][y] ^= (1 << value);
+        t[x][y] ^= (1L << value);
 
         // Propagate the changes upwards to update the segment tree
         for (int tx = x; tx > 0; tx >>= 1) {
@@ -65,14 +79,14 @@ public class TwoDSegmentTree {
      * @param value The value to check for within the submatrix.
      * @return True if the value is found within the submatrix, False otherwise.
      */
-    public Boolean query(int x1, int y1, int x2, int y2, int value) {
+    public boolean query(int x1, int y1, int x2, int y2, int value) {
         x1 += n;
         x2 += n;
         y1 += m;
         y2 += m;
 
         Boolean flag = false;
-        long set = 1 << value; // Bitmask for the query value
+        long set = 1L << value; // Bitmask for the query value
 
         for (int lx = x1, rx = x2; lx <= rx; lx = (lx + 1) >> 1, rx = (rx - 1) >> 1) {
             for (int ly = y1, ry = y2; ly <= ry; ly = (ly + 1) >> 1, ry = (ry - 1) >> 1) {
@@ -0,0 +1,49 @@
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Evaluates the four neighbours of a cell in SIMD lanes: one lane per move, the bounds compared
+ * lane-wise, and the states and clues of the neighbours gathered. Needs the jdk.incubator.vector
+ * module, to compile and to run:
+ *   javac --add-modules jdk.incubator.vector -cp out -d out src/vector/VectorNeighbourEngine.java
+ *   java --add-modules jdk.incubator.vector -Dlogipix.neighbours=vector -cp out ...
+ */
+public class VectorNeighbourEngine implements NeighbourEngine {
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_128;
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_256;
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_64;
+
+    // Moves of BaseSolver, by row and by column: right, down, left, and up.
+    private static final int[] DI = { 0, 1, 0, -1 }, DJ = { 1, 0, -1, 0 };
+
+    // The first four lanes of the clues, the other ones being unused.
+    private static final VectorMask<Byte> FOUR = VectorMask.fromLong(BYTES, 0xF);
+
+    // Index maps of the gathers: words of the states, and cells (8 entries for the byte species).
+    private final int[] words = new int[4], cells = new int[8];
+
+    @Override
+    public int freeMoves(long[] states, byte[] values, int n, int m, int c, boolean end) {
+        IntVector i = IntVector.broadcast(INTS, c / m).add(IntVector.fromArray(INTS, DI, 0));
+        IntVector j = IntVector.broadcast(INTS, c % m).add(IntVector.fromArray(INTS, DJ, 0));
+        VectorMask<Integer> inside = i.compare(VectorOperators.GE, 0).and(i.compare(VectorOperators.LT, n))
+                .and(j.compare(VectorOperators.GE, 0)).and(j.compare(VectorOperators.LT, m));
+        // Lanes outside the grid read cell 0, and are masked out.
+        IntVector cell = i.mul(m).add(j).blend(0, inside.not());
+        cell.intoArray(cells, 0);
+        cell.lanewise(VectorOperators.ASHR, 5).intoArray(words, 0);
+
+        LongVector shifts = (LongVector) cell.and(31).lanewise(VectorOperators.LSHL, 1)
+                .convertShape(VectorOperators.I2L, LONGS, 0);
+        long free = LongVector.fromArray(LONGS, states, 0, words, 0).lanewise(VectorOperators.LSHR, shifts).and(3L)
+                .compare(VectorOperators.EQ, 0L).toLong();
+        long empty = end ? 0xF
+                : ByteVector.fromArray(BYTES, values, 0, cells, 0, FOUR).compare(VectorOperators.EQ, (byte) 0)
+                        .and(FOUR).toLong();
+        return (int) (inside.toLong() & free & empty);
+    }
+}